@@ -0,0 +1,19 @@
+#!/bin/bash
+#
+# Run a JMH benchmark selection once for each thread count, e.g.
+#
+#    ./benchmark.sh ConcurrentBagBenchmark -p poolSize=32
+#
+# Results are written to benchmark/target/jmh-<threads>.csv, whatever the current directory.
+#
+cd "$(dirname "$0")" || exit 1
+
+THREADS=${THREADS:-"1 2 4 8 16 32 64 128 256"}
+
+if [[ ! -f target/benchmarks.jar ]]; then
+   mvn clean package || exit 1
+fi
+
+for t in $THREADS; do
+   java -jar target/benchmarks.jar "$@" -t $t -rf csv -rff target/jmh-$t.csv || exit 1
+done
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.util.ConcurrentBag;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A common borrow/requite facade over {@link ConcurrentBag} and the {@link BlockingQueue}
+ * (and {@link SynchronousQueueBag}) implementations that it is measured against.
+ *
+ * @author Brett Wooldridge
+ */
+abstract class BagAdapter implements AutoCloseable
+{
+   static final long BORROW_TIMEOUT_MS = 5_000L;
+
+   /**
+    * Create an adapter of the specified type, pre-filled with {@code poolSize} idle entries.
+    *
+    * @param bagType one of "ConcurrentBag", "SynchronousQueueBag", "LinkedBlockingQueue" or "LinkedTransferQueue"
+    * @param poolSize the number of entries to add
+    * @return a new, filled, adapter
+    */
+   static BagAdapter create(final String bagType, final int poolSize)
+   {
+      final BagAdapter adapter;
+      switch (bagType) {
+      case "ConcurrentBag":
+         adapter = new ConcurrentBagAdapter();
+         break;
+      case "SynchronousQueueBag":
+         adapter = new SynchronousQueueBagAdapter();
+         break;
+      case "LinkedBlockingQueue":
+         adapter = new QueueAdapter(new LinkedBlockingQueue<>());
+         break;
+      case "LinkedTransferQueue":
+         adapter = new QueueAdapter(new LinkedTransferQueue<>());
+         break;
+      default:
+         throw new IllegalArgumentException("Unknown bag type " + bagType);
+      }
+
+      for (int i = 0; i < poolSize; i++) {
+         adapter.add(new BagEntry(i));
+      }
+
+      return adapter;
+   }
+
+   abstract void add(BagEntry entry);
+
+   abstract BagEntry borrow() throws InterruptedException;
+
+   abstract void requite(BagEntry entry);
+
+   @Override
+   public void close()
+   {
+      // nothing to release by default
+   }
+
+   static final class ConcurrentBagAdapter extends BagAdapter
+   {
+      final ConcurrentBag<BagEntry> bag = new ConcurrentBag<>(waiting -> {});
+
+      @Override
+      void add(final BagEntry entry)
+      {
+         bag.add(entry);
+      }
+
+      @Override
+      BagEntry borrow() throws InterruptedException
+      {
+         return bag.borrow(BORROW_TIMEOUT_MS, MILLISECONDS);
+      }
+
+      @Override
+      void requite(final BagEntry entry)
+      {
+         bag.requite(entry);
+      }
+
+      @Override
+      public void close()
+      {
+         bag.close();
+      }
+   }
+
+   static final class SynchronousQueueBagAdapter extends BagAdapter
+   {
+      final SynchronousQueueBag<BagEntry> bag = new SynchronousQueueBag<>();
+
+      @Override
+      void add(final BagEntry entry)
+      {
+         bag.add(entry);
+      }
+
+      @Override
+      BagEntry borrow() throws InterruptedException
+      {
+         return bag.borrow(BORROW_TIMEOUT_MS, MILLISECONDS);
+      }
+
+      @Override
+      void requite(final BagEntry entry)
+      {
+         bag.requite(entry);
+      }
+   }
+
+   static final class QueueAdapter extends BagAdapter
+   {
+      private final BlockingQueue<BagEntry> queue;
+
+      QueueAdapter(final BlockingQueue<BagEntry> queue)
+      {
+         this.queue = queue;
+      }
+
+      @Override
+      void add(final BagEntry entry)
+      {
+         queue.offer(entry);
+      }
+
+      @Override
+      BagEntry borrow() throws InterruptedException
+      {
+         return queue.poll(BORROW_TIMEOUT_MS, MILLISECONDS);
+      }
+
+      @Override
+      void requite(final BagEntry entry)
+      {
+         queue.offer(entry);
+      }
+   }
+}
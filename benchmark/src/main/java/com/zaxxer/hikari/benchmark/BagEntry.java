@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A minimal {@link IConcurrentBagEntry} used in place of a PoolEntry, so that the
+ * benchmarks measure only the cost of the bag (or queue) itself.
+ *
+ * @author Brett Wooldridge
+ */
+public final class BagEntry implements IConcurrentBagEntry
+{
+   private static final AtomicIntegerFieldUpdater<BagEntry> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(BagEntry.class, "state");
+
+   private final int id;
+
+   @SuppressWarnings("unused")
+   private volatile int state;
+
+   /** The last thread to return this entry, used to compute thread affinity hit rates. */
+   volatile Thread lastOwner;
+
+   BagEntry(final int id)
+   {
+      this.id = id;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public boolean compareAndSet(final int expectState, final int newState)
+   {
+      return stateUpdater.compareAndSet(this, expectState, newState);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void setState(final int newState)
+   {
+      stateUpdater.set(this, newState);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public int getState()
+   {
+      return stateUpdater.get(this);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public String toString()
+   {
+      return "BagEntry " + id + " (state " + state + ")";
+   }
+}
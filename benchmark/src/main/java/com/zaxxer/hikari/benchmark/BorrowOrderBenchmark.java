@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrow latency of each {@link HikariConfig#setBorrowOrder(String) borrow order} against the number of
+ * distinct database connections the pool actually uses.  A pool whose working set is smaller than its
+ * size can let the remaining connections reach {@code idleTimeout}, so the {@code workingSet} secondary
+ * result (the number of distinct physical connections borrowed during the iteration) approximates the
+ * number of connections the database would see held open.  JMH sums EVENTS counters over the measurement
+ * iterations, so divide it by the iteration count.
+ * <p>
+ * The pool is filled to {@code maxPoolSize}, and four threads borrow, do {@code workTokens} of work, and
+ * close, so that only a few connections are needed at any moment.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class BorrowOrderBenchmark
+{
+   @Param({"AFFINITY", "MRU", "LRU", "YOUNGEST_FIRST"})
+   String borrowOrder;
+
+   @Param({"8", "32"})
+   int maxPoolSize;
+
+   @Param({"100"})
+   int workTokens;
+
+   private HikariDataSource dataSource;
+   private final Set<Connection> touched = ConcurrentHashMap.newKeySet();
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      final HikariConfig config = new HikariConfig();
+      config.setPoolName("benchmark");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMinimumIdle(maxPoolSize);
+      config.setMaximumPoolSize(maxPoolSize);
+      config.setConnectionTimeout(8000);
+      config.setBorrowOrder(borrowOrder);
+
+      dataSource = new HikariDataSource(config);
+   }
+
+   @Setup(Level.Iteration)
+   public void resetWorkingSet()
+   {
+      touched.clear();
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      dataSource.close();
+   }
+
+   @Benchmark
+   public Connection borrowWorkClose(final WorkingSetCounters counters) throws SQLException
+   {
+      try (Connection connection = dataSource.getConnection()) {
+         if (touched.add(connection.unwrap(Connection.class))) {
+            counters.workingSet++;
+         }
+
+         Blackhole.consumeCPU(workTokens);
+         return connection;
+      }
+   }
+
+   @State(Scope.Thread)
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   public static class WorkingSetCounters
+   {
+      /** Distinct physical connections first borrowed by this thread, summed across threads by JMH. */
+      public long workingSet;
+
+      @Setup(Level.Iteration)
+      public void reset()
+      {
+         workingSet = 0;
+      }
+   }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrow/requite throughput of {@link com.zaxxer.hikari.util.ConcurrentBag} compared with
+ * {@link java.util.concurrent.LinkedBlockingQueue} and {@link java.util.concurrent.LinkedTransferQueue}.
+ * <p>
+ * The thread count is a JMH option rather than a parameter; use {@code benchmark.sh} to sweep
+ * 1..256 threads.  The {@code affinityHits} and {@code affinityMisses} secondary results
+ * count borrows that returned (or did not return) the entry this thread last requited, which
+ * for ConcurrentBag is the thread-local hit rate.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentBagBenchmark
+{
+   @Param({"ConcurrentBag", "LinkedBlockingQueue", "LinkedTransferQueue"})
+   String bagType;
+
+   @Param({"4", "32", "256", "2000"})
+   int poolSize;
+
+   @Param({"0", "100"})
+   int workTokens;
+
+   private BagAdapter bag;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      bag = BagAdapter.create(bagType, poolSize);
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      bag.close();
+   }
+
+   @Benchmark
+   public BagEntry borrowRequite(final AffinityCounters counters) throws InterruptedException
+   {
+      final BagEntry entry = bag.borrow();
+      if (entry == null) {
+         counters.timeouts++;
+         return null;
+      }
+
+      final Thread current = Thread.currentThread();
+      if (entry.lastOwner == current) {
+         counters.affinityHits++;
+      }
+      else {
+         counters.affinityMisses++;
+         entry.lastOwner = current;
+      }
+
+      Blackhole.consumeCPU(workTokens);
+      bag.requite(entry);
+      return entry;
+   }
+
+   @State(Scope.Thread)
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   public static class AffinityCounters
+   {
+      public long affinityHits;
+      public long affinityMisses;
+      public long timeouts;
+
+      @Setup(Level.Iteration)
+      public void reset()
+      {
+         affinityHits = 0;
+         affinityMisses = 0;
+         timeouts = 0;
+      }
+   }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.util.ConcurrentBag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Cost of the {@link ConcurrentBag} shared-list scan.  The first {@code depth} entries of the bag
+ * are reserved, so every borrow has to walk past them.  Borrowed entries are released by setting
+ * their state directly instead of calling {@code requite()}, which keeps the thread-local list
+ * empty and forces each borrow through the shared list.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentBagScanBenchmark
+{
+   @Param({"2000"})
+   int poolSize;
+
+   @Param({"0", "8", "64", "512", "1024"})
+   int depth;
+
+   private ConcurrentBag<BagEntry> bag;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      bag = new ConcurrentBag<>(waiting -> {});
+      for (int i = 0; i < poolSize; i++) {
+         final BagEntry entry = new BagEntry(i);
+         bag.add(entry);
+         if (i < depth) {
+            bag.reserve(entry);
+         }
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      bag.close();
+   }
+
+   @Benchmark
+   public BagEntry sharedScan() throws InterruptedException
+   {
+      final BagEntry entry = bag.borrow(BagAdapter.BORROW_TIMEOUT_MS, MILLISECONDS);
+      if (entry != null) {
+         entry.setState(STATE_NOT_IN_USE);
+      }
+      return entry;
+   }
+}
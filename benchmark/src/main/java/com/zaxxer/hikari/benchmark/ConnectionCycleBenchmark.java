@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end {@link HikariDataSource#getConnection()} / {@link Connection#close()} cycles against the
+ * {@code StubDataSource} test mock.  This covers {@code HikariPool.getConnection()}, proxy creation,
+ * and {@code PoolBase.resetConnectionState()} on close, so it is the benchmark to watch for per-borrow
+ * overhead regressions.
+ * <p>
+ * {@code dirtyState} selects which connection state the "application" changes before closing:
+ * none, autoCommit, readOnly, isolation, or all three.  {@code metrics} installs a trivial
+ * {@link MetricsTrackerFactory}, which exercises the metrics delegate instead of the no-op one.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionCycleBenchmark
+{
+   @Param({"8", "32"})
+   int maxPoolSize;
+
+   @Param({"none", "autoCommit", "readOnly", "isolation", "all"})
+   String dirtyState;
+
+   @Param({"false", "true"})
+   boolean metrics;
+
+   private HikariDataSource dataSource;
+   private boolean dirtyAutoCommit;
+   private boolean dirtyReadOnly;
+   private boolean dirtyIsolation;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      dirtyAutoCommit = "autoCommit".equals(dirtyState) || "all".equals(dirtyState);
+      dirtyReadOnly = "readOnly".equals(dirtyState) || "all".equals(dirtyState);
+      dirtyIsolation = "isolation".equals(dirtyState) || "all".equals(dirtyState);
+
+      final HikariConfig config = new HikariConfig();
+      config.setPoolName("benchmark");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMinimumIdle(maxPoolSize);
+      config.setMaximumPoolSize(maxPoolSize);
+      config.setConnectionTimeout(8000);
+      config.setAutoCommit(true);
+      config.setReadOnly(false);
+      config.setTransactionIsolation("TRANSACTION_READ_COMMITTED");
+      if (metrics) {
+         config.setMetricsTrackerFactory(new CountingMetricsTrackerFactory());
+      }
+
+      dataSource = new HikariDataSource(config);
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      dataSource.close();
+   }
+
+   @Benchmark
+   public Connection cycleConnection() throws SQLException
+   {
+      final Connection connection = dataSource.getConnection();
+      if (dirtyAutoCommit) {
+         connection.setAutoCommit(false);
+      }
+      if (dirtyReadOnly) {
+         connection.setReadOnly(true);
+      }
+      if (dirtyIsolation) {
+         connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+      }
+      connection.close();
+      return connection;
+   }
+
+   /**
+    * A metrics tracker that does the minimum amount of work, so the benchmark measures the pool's
+    * side of metrics collection rather than a metrics library.
+    */
+   static final class CountingMetricsTrackerFactory implements MetricsTrackerFactory
+   {
+      @Override
+      public IMetricsTracker create(final String poolName, final PoolStats poolStats)
+      {
+         return new IMetricsTracker() {
+            private final LongAdder acquired = new LongAdder();
+            private final LongAdder usage = new LongAdder();
+
+            @Override
+            public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos)
+            {
+               acquired.add(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(final long elapsedBorrowedMillis)
+            {
+               usage.add(elapsedBorrowedMillis);
+            }
+         };
+      }
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fairness of the bag under saturation.  Every borrow takes an arrival ticket before borrowing and
+ * a service ticket once it has an entry; in a perfectly FIFO bag a borrow is served in the order
+ * it arrived.  The {@code displacement} secondary result is the sum of |service - arrival| over
+ * all borrows, so {@code displacement / borrows} is the average number of places a borrower was
+ * overtaken (or jumped ahead).  The {@code slowBorrows} result counts borrows that waited longer
+ * than {@code slowMs}, i.e. the starvation tail.
+ * <p>
+ * Compare "ConcurrentBag" (direct waiter handoff) with "SynchronousQueueBag" (the previous
+ * SynchronousQueue based handoff).  Run with {@code -bm sample} for the tail latency percentiles.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class FairnessBenchmark
+{
+   @Param({"ConcurrentBag", "SynchronousQueueBag"})
+   String bagType;
+
+   @Param({"1", "4"})
+   int poolSize;
+
+   @Param({"500"})
+   int workTokens;
+
+   @Param({"10"})
+   long slowMs;
+
+   private final AtomicLong arrivals = new AtomicLong();
+   private final AtomicLong services = new AtomicLong();
+
+   private BagAdapter bag;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      bag = BagAdapter.create(bagType, poolSize);
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      bag.close();
+   }
+
+   @Benchmark
+   public BagEntry saturatedBorrow(final FairnessCounters counters) throws InterruptedException
+   {
+      final long arrival = arrivals.getAndIncrement();
+      final long start = System.nanoTime();
+      final BagEntry entry = bag.borrow();
+      if (entry == null) {
+         counters.timeouts++;
+         return null;
+      }
+
+      final long service = services.getAndIncrement();
+      counters.borrows++;
+      counters.displacement += Math.abs(service - arrival);
+      if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(slowMs)) {
+         counters.slowBorrows++;
+      }
+
+      Blackhole.consumeCPU(workTokens);
+      bag.requite(entry);
+      return entry;
+   }
+
+   @State(Scope.Thread)
+   @AuxCounters(AuxCounters.Type.EVENTS)
+   public static class FairnessCounters
+   {
+      public long borrows;
+      public long displacement;
+      public long slowBorrows;
+      public long timeouts;
+
+      @Setup(Level.Iteration)
+      public void reset()
+      {
+         borrows = 0;
+         displacement = 0;
+         slowBorrows = 0;
+         timeouts = 0;
+      }
+   }
+}
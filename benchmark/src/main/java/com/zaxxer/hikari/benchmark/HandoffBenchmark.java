@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrow latency distribution when there are more threads than entries, so that most borrows
+ * wait for another thread to requite an entry.  Run in sample mode, the percentiles reported
+ * by JMH are the handoff latency of the bag under saturation.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class HandoffBenchmark
+{
+   @Param({"ConcurrentBag", "SynchronousQueueBag", "LinkedBlockingQueue", "LinkedTransferQueue"})
+   String bagType;
+
+   @Param({"1", "4"})
+   int poolSize;
+
+   @Param({"500"})
+   int workTokens;
+
+   private BagAdapter bag;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      bag = BagAdapter.create(bagType, poolSize);
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      bag.close();
+   }
+
+   @Benchmark
+   public BagEntry saturatedBorrow() throws InterruptedException
+   {
+      final BagEntry entry = bag.borrow();
+      if (entry != null) {
+         Blackhole.consumeCPU(workTokens);
+         bag.requite(entry);
+      }
+      return entry;
+   }
+}
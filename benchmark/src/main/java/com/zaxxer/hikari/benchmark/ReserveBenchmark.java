@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.util.ConcurrentBag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Borrowers running against a "housekeeper" that continuously reserves and unreserves idle
+ * entries, as the pool does for idle timeout, keepalive and eviction.
+ *
+ * @author Brett Wooldridge
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReserveBenchmark
+{
+   @Param({"4", "32", "256"})
+   int poolSize;
+
+   private ConcurrentBag<BagEntry> bag;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      bag = new ConcurrentBag<>(waiting -> {});
+      for (int i = 0; i < poolSize; i++) {
+         bag.add(new BagEntry(i));
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void teardown()
+   {
+      bag.close();
+   }
+
+   @Benchmark
+   @Group("housekeeping")
+   @GroupThreads(7)
+   public BagEntry borrower() throws InterruptedException
+   {
+      final BagEntry entry = bag.borrow(BagAdapter.BORROW_TIMEOUT_MS, MILLISECONDS);
+      if (entry != null) {
+         bag.requite(entry);
+      }
+      return entry;
+   }
+
+   @Benchmark
+   @Group("housekeeping")
+   @GroupThreads(1)
+   public void housekeeper(final Blackhole blackhole)
+   {
+      for (BagEntry entry : bag.values(STATE_NOT_IN_USE)) {
+         if (bag.reserve(entry)) {
+            blackhole.consume(entry);
+            bag.unreserve(entry);
+         }
+      }
+   }
+}
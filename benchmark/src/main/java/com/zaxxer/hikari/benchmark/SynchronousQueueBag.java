@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.benchmark;
+
+import com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_IN_USE;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * The borrow/requite algorithm of ConcurrentBag as it was before waiter-node handoff: waiting
+ * borrowers poll a fair {@link SynchronousQueue}, and a returning thread spins offering the entry
+ * until a waiter takes it.  Kept here only as a baseline for the handoff and fairness benchmarks.
+ *
+ * @author Brett Wooldridge
+ */
+final class SynchronousQueueBag<T extends IConcurrentBagEntry>
+{
+   private final CopyOnWriteArrayList<T> sharedList = new CopyOnWriteArrayList<>();
+   private final ThreadLocal<List<T>> threadList = ThreadLocal.withInitial(() -> new ArrayList<>(16));
+   private final AtomicInteger waiters = new AtomicInteger();
+   private final SynchronousQueue<T> handoffQueue = new SynchronousQueue<>(true);
+
+   T borrow(long timeout, final TimeUnit timeUnit) throws InterruptedException
+   {
+      final List<T> list = threadList.get();
+      for (int i = list.size() - 1; i >= 0; i--) {
+         final T bagEntry = list.remove(i);
+         if (bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return bagEntry;
+         }
+      }
+
+      waiters.incrementAndGet();
+      try {
+         for (T bagEntry : sharedList) {
+            if (bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+               return bagEntry;
+            }
+         }
+
+         timeout = timeUnit.toNanos(timeout);
+         do {
+            final long start = System.nanoTime();
+            final T bagEntry = handoffQueue.poll(timeout, NANOSECONDS);
+            if (bagEntry == null || bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+               return bagEntry;
+            }
+
+            timeout -= System.nanoTime() - start;
+         } while (timeout > 10_000);
+
+         return null;
+      }
+      finally {
+         waiters.decrementAndGet();
+      }
+   }
+
+   void requite(final T bagEntry)
+   {
+      bagEntry.setState(STATE_NOT_IN_USE);
+
+      for (int i = 0; waiters.get() > 0; i++) {
+         if (bagEntry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(bagEntry)) {
+            return;
+         }
+         else if ((i & 0xff) == 0xff) {
+            parkNanos(MICROSECONDS.toNanos(10));
+         }
+         else {
+            Thread.yield();
+         }
+      }
+
+      final List<T> list = threadList.get();
+      if (list.size() < 50) {
+         list.add(bagEntry);
+      }
+   }
+
+   void add(final T bagEntry)
+   {
+      sharedList.add(bagEntry);
+
+      while (waiters.get() > 0 && bagEntry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(bagEntry)) {
+         Thread.yield();
+      }
+   }
+}
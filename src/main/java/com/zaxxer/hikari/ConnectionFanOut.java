@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs a list of JDBC tasks in parallel, each on its own pooled connection.  The connections are
+ * obtained together with {@link HikariDataSource#getConnections(int, long)}, so that concurrent
+ * fan-outs cannot deadlock each other by each holding part of the connections they need.
+ *
+ * @author Brett Wooldridge
+ */
+public final class ConnectionFanOut
+{
+   /**
+    * A unit of JDBC work that runs on a connection it does not own; it must not close the connection.
+    *
+    * @param <V> the type of the result
+    */
+   @FunctionalInterface
+   public interface ConnectionTask<V>
+   {
+      V call(Connection connection) throws SQLException;
+   }
+
+   private ConnectionFanOut()
+   {
+      // static helper
+   }
+
+   /**
+    * Run each task on its own connection from the data source, using the executor, and wait for all of
+    * them to complete.  Every connection is closed (returned to the pool) when its task completes.
+    *
+    * @param dataSource the data source to get the connections from
+    * @param tasks the tasks to run, at most maximumPoolSize of them
+    * @param executor the executor to run the tasks on
+    * @param timeoutMs the maximum time to wait for the connections, in milliseconds
+    * @param <V> the type of the task results
+    * @return the results of the tasks, in the order of the tasks
+    * @throws SQLException if the connections could not be obtained, or the first exception thrown by a
+    *         task, to which the exceptions of any other failed tasks are added as suppressed exceptions
+    */
+   public static <V> List<V> invokeAll(final HikariDataSource dataSource, final List<? extends ConnectionTask<? extends V>> tasks,
+                                       final Executor executor, final long timeoutMs) throws SQLException
+   {
+      final List<Connection> connections = dataSource.getConnections(tasks.size(), timeoutMs);
+      final List<CompletableFuture<V>> futures = new ArrayList<>(tasks.size());
+
+      SQLException failure = null;
+      try {
+         for (int i = 0; i < tasks.size(); i++) {
+            final ConnectionTask<? extends V> task = tasks.get(i);
+            final Connection connection = connections.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+               try (Connection c = connection) {
+                  return task.call(c);
+               }
+               catch (SQLException e) {
+                  throw new CompletionException(e);
+               }
+            }, executor));
+         }
+      }
+      catch (RejectedExecutionException e) {
+         failure = new SQLException("Fan-out task rejected by executor", e);
+         for (int i = futures.size(); i < connections.size(); i++) {
+            quietlyClose(connections.get(i));
+         }
+      }
+
+      final List<V> results = new ArrayList<>(futures.size());
+      for (int i = 0; i < futures.size(); i++) {
+         SQLException taskFailure = null;
+         try {
+            results.add(futures.get(i).join());
+         }
+         catch (CompletionException e) {
+            taskFailure = e.getCause() instanceof SQLException ? (SQLException) e.getCause() : new SQLException("Fan-out task failed", e.getCause());
+         }
+         catch (CancellationException e) {
+            // the task may never have run, and so never closed its connection
+            quietlyClose(connections.get(i));
+            taskFailure = new SQLException("Fan-out task cancelled", e);
+         }
+
+         if (taskFailure == null) {
+            continue;
+         }
+         if (failure == null) {
+            failure = taskFailure;
+         }
+         else {
+            failure.addSuppressed(taskFailure);
+         }
+      }
+
+      if (failure != null) {
+         throw failure;
+      }
+
+      return results;
+   }
+
+   private static void quietlyClose(final Connection connection)
+   {
+      try {
+         connection.close();
+      }
+      catch (SQLException e) {
+         // the underlying connection is evicted by the pool on failure
+      }
+   }
+}
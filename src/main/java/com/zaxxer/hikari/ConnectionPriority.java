@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari;
+
+/**
+ * The priority of a connection borrower.  When the pool is exhausted, connections returned to
+ * the pool are handed to waiting borrowers of a higher priority before those of a lower one,
+ * and in FIFO order within a priority.  Additionally, the number of idle connections configured
+ * by {@link HikariConfig#setHighPriorityReserve(int)} can only be borrowed at {@link #HIGH}
+ * priority.
+ *
+ * @author Brett Wooldridge
+ */
+public enum ConnectionPriority
+{
+   /**
+    * Latency-critical and user-facing work, and health checks.  May borrow reserved connections.
+    */
+   HIGH,
+
+   /**
+    * The priority of {@link HikariDataSource#getConnection()}.
+    */
+   NORMAL,
+
+   /**
+    * Batch, reporting and other work that can tolerate waiting.
+    */
+   LOW
+}
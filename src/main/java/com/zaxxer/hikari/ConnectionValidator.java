@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Users can implement this interface to replace the way HikariCP validates connections, for example with a
+ * driver-specific ping that is cheaper than {@link Connection#isValid(int)} or a test query.  By default HikariCP
+ * uses {@link Connection#isValid(int)}, or the {@code connectionTestQuery} (prepared once per connection) if one
+ * is configured.
+ *
+ * A connection is validated by one thread at a time, with the network timeout of the connection set to the
+ * {@code validationTimeout} unless the validator {@link #enforcesTimeout() enforces its timeout} itself.  An
+ * implementation may therefore keep state for each connection without synchronizing on it, as long as it releases
+ * that state in {@link #closed(Connection)}.
+ */
+public interface ConnectionValidator {
+   /**
+    * Determine whether the connection is alive.  A connection that is not alive, or for which this method throws,
+    * is evicted from the pool.
+    *
+    * @param connection the physical connection to validate, never a proxy
+    * @param timeoutSeconds the number of seconds to wait for the database
+    * @return {@code true} if the connection is alive
+    * @throws SQLException rethrown from the driver
+    */
+   boolean isAlive(Connection connection, int timeoutSeconds) throws SQLException;
+
+   /**
+    * Determine whether {@link #isAlive(Connection, int)} enforces the timeout it is given by itself, in which case
+    * the pool does not set the network timeout of the connection around each validation.
+    *
+    * @return {@code true} if the validator enforces its timeout
+    */
+   default boolean enforcesTimeout()
+   {
+      return false;
+   }
+
+   /**
+    * Called when a connection is about to be closed by the pool, to release any state held for it.  The connection
+    * may be in use by an aborted borrower, so it must not be used here, and this method must not throw.
+    *
+    * @param connection the physical connection that is about to be closed
+    */
+   default void closed(final Connection connection)
+   {
+      // nothing held by default
+   }
+}
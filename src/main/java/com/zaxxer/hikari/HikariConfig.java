@@ -33,6 +33,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.security.AccessControlException;
 import java.sql.Connection;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
@@ -82,6 +83,7 @@ public class HikariConfig implements HikariConfigMXBean
    private String dataSourceJndiName;
    private String driverClassName;
    private String exceptionOverrideClassName;
+   private String connectionValidatorClassName;
    private String jdbcUrl;
    private String poolName;
    private String schema;
@@ -101,6 +103,22 @@ public class HikariConfig implements HikariConfigMXBean
    private Properties healthCheckProperties;
 
    private long keepaliveTime;
+   private int bagStripes;
+   private int highPriorityReserve;
+   private String borrowOrder;
+   private boolean isAdaptivePoolSize;
+   private boolean isPredictiveMinimumIdle;
+   private boolean isValidateAhead;
+   private int connectionCreationParallelism;
+   private boolean isMakeBeforeBreak;
+   private int maxConcurrentRetirements;
+   private int maxRetirementsPerInterval;
+   private long retirementInterval;
+   private int circuitBreakerThreshold;
+   private long circuitBreakerOpenTime;
+   private int maxWaiters;
+   private long leakReclaimThreshold;
+   private long maxAliveBypassWindow;
 
    private volatile boolean sealed;
 
@@ -121,6 +139,11 @@ public class HikariConfig implements HikariConfigMXBean
       initializationFailTimeout = 1;
       isAutoCommit = true;
       keepaliveTime = DEFAULT_KEEPALIVE_TIME;
+      borrowOrder = "AFFINITY";
+      connectionCreationParallelism = 1;
+      maxConcurrentRetirements = 1;
+      retirementInterval = SECONDS.toMillis(1);
+      circuitBreakerOpenTime = SECONDS.toMillis(5);
 
       String systemProp = System.getProperty("hikaricp.configurationFile");
       if (systemProp != null) {
@@ -744,6 +767,458 @@ public class HikariConfig implements HikariConfigMXBean
       this.keepaliveTime = keepaliveTimeMs;
    }
 
+   /**
+    * Get the number of stripes the pool's connection bag is partitioned into.
+    *
+    * @return the number of stripes, 0 or 1 meaning the bag is not striped
+    */
+   public int getBagStripes()
+   {
+      return bagStripes;
+   }
+
+   /**
+    * Set the number of stripes the pool's connection bag is partitioned into.  When striped, a thread
+    * that finds no connection in its thread-local list begins its scan of the shared connection list in
+    * its own stripe, stealing from the other stripes only when its own is exhausted.  This spreads
+    * contention away from the front of the shared list, and is only worthwhile for very large pools on
+    * hosts with many cores.  Default is 0 (not striped).
+    *
+    * @param bagStripes the number of stripes, 0 or 1 to disable striping
+    */
+   public void setBagStripes(int bagStripes)
+   {
+      checkIfSealed();
+      if (bagStripes < 0) {
+         throw new IllegalArgumentException("bagStripes cannot be negative");
+      }
+      this.bagStripes = bagStripes;
+   }
+
+   /**
+    * Get the maximum number of connections the pool creates concurrently.
+    *
+    * @return the connection creation parallelism
+    */
+   public int getConnectionCreationParallelism()
+   {
+      return connectionCreationParallelism;
+   }
+
+   /**
+    * Set the maximum number of connections the pool creates concurrently.  Requests for new connections, from
+    * threads waiting for a connection and from filling the pool to {@code minimumIdle}, are coalesced into a
+    * single count of connections needed, which up to this many creator threads work off.  Raising it shortens
+    * the time taken to fill a large pool, or to serve a burst of waiting threads, when connection setup is slow
+    * (a TLS handshake, for example), at the cost of a burst of connection attempts on the database.  Each attempt
+    * is bounded by the driver login timeout, which is derived from {@code connectionTimeout}.  Default is 1.
+    *
+    * @param connectionCreationParallelism the maximum number of concurrent connection attempts
+    */
+   public void setConnectionCreationParallelism(int connectionCreationParallelism)
+   {
+      checkIfSealed();
+      if (connectionCreationParallelism < 1) {
+         throw new IllegalArgumentException("connectionCreationParallelism cannot be less than 1");
+      }
+      this.connectionCreationParallelism = connectionCreationParallelism;
+   }
+
+   /**
+    * Determine whether connections are replaced before they are retired.
+    *
+    * @return {@code true} if retirement is make-before-break
+    */
+   public boolean isMakeBeforeBreak()
+   {
+      return isMakeBeforeBreak;
+   }
+
+   /**
+    * Set whether connections are replaced before they are retired.  Normally a connection that has passed
+    * {@code maxLifetime} is closed first, and its replacement is created afterwards, so that borrowers may have to
+    * wait for the new connection.  In make-before-break mode the replacement is created and added to the pool first,
+    * and the old connection is only retired afterwards.  Below {@code maximumPoolSize} the old connection remains
+    * available to borrowers meanwhile; at the maximum only an idle connection is replaced first, and it is withheld
+    * from borrowers, while one in use is retired as usual.  The pool may therefore hold up to
+    * {@code maxConcurrentRetirements} connections more than {@code maximumPoolSize} for the duration of a
+    * connection setup, but never longer.  A connection that fails its keepalive check is retired at once, but its replacement is
+    * requested without waiting for the dead connection to close.  Default is false.
+    *
+    * @param isMakeBeforeBreak {@code true} to replace connections before retiring them
+    */
+   public void setMakeBeforeBreak(boolean isMakeBeforeBreak)
+   {
+      checkIfSealed();
+      this.isMakeBeforeBreak = isMakeBeforeBreak;
+   }
+
+   /**
+    * Get the maximum number of make-before-break retirements in progress at once.
+    *
+    * @return the maximum number of concurrent retirements
+    */
+   public int getMaxConcurrentRetirements()
+   {
+      return maxConcurrentRetirements;
+   }
+
+   /**
+    * Set the maximum number of make-before-break retirements in progress at once.  A connection whose retirement
+    * would exceed it is retired a little later.  Only used when {@link #setMakeBeforeBreak(boolean)} is enabled.
+    * Default is 1.
+    *
+    * @param maxConcurrentRetirements the maximum number of concurrent retirements
+    */
+   public void setMaxConcurrentRetirements(int maxConcurrentRetirements)
+   {
+      checkIfSealed();
+      if (maxConcurrentRetirements < 1) {
+         throw new IllegalArgumentException("maxConcurrentRetirements cannot be less than 1");
+      }
+      this.maxConcurrentRetirements = maxConcurrentRetirements;
+   }
+
+   /**
+    * Get the maximum number of connections retired in each {@code retirementInterval}.
+    *
+    * @return the maximum number of retirements per interval, 0 if retirement is not rate-capped
+    */
+   public int getMaxRetirementsPerInterval()
+   {
+      return maxRetirementsPerInterval;
+   }
+
+   /**
+    * Set the maximum number of connections retired in each {@code retirementInterval}.  When set, each new
+    * connection is assigned a retirement slot rather than a randomly varied lifetime: it retires at
+    * {@code maxLifetime}, or earlier when that interval is already fully booked, so that a pool filled in a burst
+    * does not reconnect in a burst.  {@link HikariPoolMXBean#softEvictConnections()} is rate-capped as well, its
+    * connections staying in service until their slots come round.  Default is 0 (not rate-capped).
+    *
+    * @param maxRetirementsPerInterval the maximum number of retirements per interval, 0 to disable
+    */
+   public void setMaxRetirementsPerInterval(int maxRetirementsPerInterval)
+   {
+      checkIfSealed();
+      if (maxRetirementsPerInterval < 0) {
+         throw new IllegalArgumentException("maxRetirementsPerInterval cannot be negative");
+      }
+      this.maxRetirementsPerInterval = maxRetirementsPerInterval;
+   }
+
+   /**
+    * Get the length of the interval in which at most {@code maxRetirementsPerInterval} connections retire.
+    *
+    * @return the retirement interval in milliseconds
+    */
+   public long getRetirementInterval()
+   {
+      return retirementInterval;
+   }
+
+   /**
+    * Set the length of the interval in which at most {@code maxRetirementsPerInterval} connections retire.
+    * Default is 1000ms.
+    *
+    * @param retirementIntervalMs the retirement interval in milliseconds
+    */
+   public void setRetirementInterval(long retirementIntervalMs)
+   {
+      checkIfSealed();
+      if (retirementIntervalMs < 1) {
+         throw new IllegalArgumentException("retirementInterval cannot be less than 1ms");
+      }
+      this.retirementInterval = retirementIntervalMs;
+   }
+
+   /**
+    * Get the number of consecutive connection creation failures that opens the circuit breaker.
+    *
+    * @return the failure threshold, 0 if there is no circuit breaker
+    */
+   public int getCircuitBreakerThreshold()
+   {
+      return circuitBreakerThreshold;
+   }
+
+   /**
+    * Set the number of consecutive connection creation failures that opens the circuit breaker.  While the breaker
+    * is open the pool makes no connection attempts, and a thread that finds no idle connection fails at once with
+    * the last connection failure as the cause, rather than waiting for {@code connectionTimeout}.  After
+    * {@code circuitBreakerOpenTime} a single attempt is let through; if it succeeds the breaker closes again,
+    * otherwise it stays open for another {@code circuitBreakerOpenTime}.  Default is 0 (no circuit breaker).
+    *
+    * @param circuitBreakerThreshold the failure threshold, 0 to disable
+    */
+   public void setCircuitBreakerThreshold(int circuitBreakerThreshold)
+   {
+      checkIfSealed();
+      if (circuitBreakerThreshold < 0) {
+         throw new IllegalArgumentException("circuitBreakerThreshold cannot be negative");
+      }
+      this.circuitBreakerThreshold = circuitBreakerThreshold;
+   }
+
+   /**
+    * Get the time the circuit breaker stays open before it lets an attempt through.
+    *
+    * @return the open time in milliseconds
+    */
+   public long getCircuitBreakerOpenTime()
+   {
+      return circuitBreakerOpenTime;
+   }
+
+   /**
+    * Set the time the circuit breaker stays open before it lets an attempt through.  Default is 5000ms.
+    *
+    * @param circuitBreakerOpenTimeMs the open time in milliseconds
+    */
+   public void setCircuitBreakerOpenTime(long circuitBreakerOpenTimeMs)
+   {
+      checkIfSealed();
+      if (circuitBreakerOpenTimeMs < 1) {
+         throw new IllegalArgumentException("circuitBreakerOpenTime cannot be less than 1ms");
+      }
+      this.circuitBreakerOpenTime = circuitBreakerOpenTimeMs;
+   }
+
+   /**
+    * Get the maximum number of threads that may wait for a connection at once.
+    *
+    * @return the maximum number of waiting threads, 0 if unbounded
+    */
+   public int getMaxWaiters()
+   {
+      return maxWaiters;
+   }
+
+   /**
+    * Set the maximum number of threads that may wait for a connection at once.  When this many threads are already
+    * waiting, a thread that finds no idle connection is rejected at once with a
+    * {@link com.zaxxer.hikari.pool.HikariPool.ConnectionRejectedException}, rather than joining the queue and
+    * waiting out {@code connectionTimeout}, so that an overloaded pool sheds load instead of building a backlog
+    * that only times out.  Default is 0 (unbounded).
+    *
+    * @param maxWaiters the maximum number of waiting threads, 0 for no limit
+    */
+   public void setMaxWaiters(int maxWaiters)
+   {
+      checkIfSealed();
+      if (maxWaiters < 0) {
+         throw new IllegalArgumentException("maxWaiters cannot be negative");
+      }
+      this.maxWaiters = maxWaiters;
+   }
+
+   /**
+    * Get the time a connection can be out of the pool before it is reclaimed as leaked.
+    *
+    * @return the reclaim threshold in milliseconds, 0 if leaked connections are never reclaimed
+    */
+   public long getLeakReclaimThreshold()
+   {
+      return leakReclaimThreshold;
+   }
+
+   /**
+    * Set the time a connection can be out of the pool before it is reclaimed as leaked.  A reclaimed connection is
+    * aborted and removed from the pool, so that it is replaced, and the {@link java.sql.Connection} held by the
+    * application is closed, so that any later use of it throws.  Unlike {@code leakDetectionThreshold}, which only
+    * logs, this takes the connection away from code that may still be using it, so it should be set well above the
+    * longest legitimate use of a connection.  Default is 0 (never reclaimed).
+    *
+    * @param leakReclaimThresholdMs the reclaim threshold in milliseconds, 0 to disable
+    */
+   public void setLeakReclaimThreshold(long leakReclaimThresholdMs)
+   {
+      checkIfSealed();
+      if (leakReclaimThresholdMs < 0) {
+         throw new IllegalArgumentException("leakReclaimThreshold cannot be negative");
+      }
+      this.leakReclaimThreshold = leakReclaimThresholdMs;
+   }
+
+   /**
+    * Get the longest the alive bypass window can widen to while validations succeed.
+    *
+    * @return the maximum alive bypass window in milliseconds, 0 if the window is fixed
+    */
+   public long getMaxAliveBypassWindow()
+   {
+      return maxAliveBypassWindow;
+   }
+
+   /**
+    * Set the longest the alive bypass window can widen to while validations succeed.  A connection which was used
+    * or validated within the alive bypass window (500ms by default, set with the
+    * {@code com.zaxxer.hikari.aliveBypassWindowMs} system property) is handed to a borrower without validating it.
+    * When this is set above that window, the pool keeps a decaying rate of the validations that failed, and widens
+    * the window towards this maximum while the rate is low, so that validation is rare when the network is healthy,
+    * and narrows it back to the alive bypass window as soon as validations begin to fail.  Default is 0 (fixed).
+    *
+    * @param maxAliveBypassWindowMs the maximum alive bypass window in milliseconds, 0 to keep it fixed
+    */
+   public void setMaxAliveBypassWindow(long maxAliveBypassWindowMs)
+   {
+      checkIfSealed();
+      if (maxAliveBypassWindowMs < 0) {
+         throw new IllegalArgumentException("maxAliveBypassWindow cannot be negative");
+      }
+      this.maxAliveBypassWindow = maxAliveBypassWindowMs;
+   }
+
+   /**
+    * Get the number of idle connections reserved for borrowers of {@link ConnectionPriority#HIGH} priority.
+    *
+    * @return the number of reserved connections
+    */
+   public int getHighPriorityReserve()
+   {
+      return highPriorityReserve;
+   }
+
+   /**
+    * Set the number of idle connections reserved for borrowers of {@link ConnectionPriority#HIGH} priority,
+    * such as health checks and user-facing requests.  Borrowers of a lower priority wait rather than take one
+    * of the last <code>highPriorityReserve</code> idle connections, so that batch and reporting work cannot
+    * hold every connection in the pool.  Default is 0 (none reserved).
+    *
+    * @param highPriorityReserve the number of reserved connections, must be less than maximumPoolSize
+    * @see HikariDataSource#getConnection(ConnectionPriority)
+    */
+   public void setHighPriorityReserve(int highPriorityReserve)
+   {
+      checkIfSealed();
+      if (highPriorityReserve < 0) {
+         throw new IllegalArgumentException("highPriorityReserve cannot be negative");
+      }
+      this.highPriorityReserve = highPriorityReserve;
+   }
+
+   /**
+    * Determine whether the effective maximum size of the pool adapts to the observed performance of the database.
+    *
+    * @return {@code true} if the pool size is adaptive
+    */
+   public boolean isAdaptivePoolSize()
+   {
+      return isAdaptivePoolSize;
+   }
+
+   /**
+    * Set whether the effective maximum size of the pool adapts to the observed performance of the database.  When
+    * enabled, a controller compares connection usage and creation times with their recent baselines every second.
+    * If the database slows down, it lowers the effective maximum pool size (retiring idle connections above it),
+    * so that fewer connections pile work onto the database; while borrowers wait for connections it raises the
+    * effective maximum again, one connection per second, up to {@code maximumPoolSize}.  The effective maximum never
+    * drops below {@code minimumIdle}, so {@code minimumIdle} must be less than {@code maximumPoolSize} for the pool
+    * size to adapt.  Default is false.
+    *
+    * @param isAdaptivePoolSize {@code true} to adapt the pool size
+    */
+   public void setAdaptivePoolSize(boolean isAdaptivePoolSize)
+   {
+      checkIfSealed();
+      this.isAdaptivePoolSize = isAdaptivePoolSize;
+   }
+
+   /**
+    * Determine whether the pool keeps connections warm for the demand it forecasts, in addition to
+    * {@code minimumIdle}.
+    *
+    * @return {@code true} if the minimum number of connections follows the forecast demand
+    */
+   public boolean isPredictiveMinimumIdle()
+   {
+      return isPredictiveMinimumIdle;
+   }
+
+   /**
+    * Set whether the pool keeps connections warm for the demand it forecasts.  When enabled, the house keeper
+    * samples the concurrent demand for connections (active connections plus waiting threads) on every run, and
+    * keeps a trend-following forecast of it, along with a slowly decaying peak.  The pool then opens connections
+    * ahead of a rising demand rather than when borrowers are already waiting, and lets them go again gradually
+    * once the demand has passed.  The pool still keeps at least {@code minimumIdle} idle connections, and never
+    * more than {@code maximumPoolSize} connections.  Default is false.
+    *
+    * @param isPredictiveMinimumIdle {@code true} to follow the forecast demand
+    */
+   public void setPredictiveMinimumIdle(boolean isPredictiveMinimumIdle)
+   {
+      checkIfSealed();
+      this.isPredictiveMinimumIdle = isPredictiveMinimumIdle;
+   }
+
+   /**
+    * Determine whether idle connections are validated in the background, ahead of the borrowers.
+    *
+    * @return {@code true} if idle connections are validated ahead of the borrowers
+    */
+   public boolean isValidateAhead()
+   {
+      return isValidateAhead;
+   }
+
+   /**
+    * Set whether idle connections are validated in the background, ahead of the borrowers.  Normally a borrower
+    * that takes a connection which has been idle for longer than the alive bypass window (500ms by default, set
+    * with the {@code com.zaxxer.hikari.aliveBypassWindowMs} system property) validates it first, adding a round
+    * trip to the database to the borrow.  When enabled, the house keeper reserves and validates each idle
+    * connection shortly before it leaves that window, so that borrowers almost always receive a connection that
+    * was validated moments ago.  Each idle connection is then validated about twice per alive bypass window, so
+    * this suits pools where a longer window is acceptable.  Default is false.
+    *
+    * @param isValidateAhead {@code true} to validate idle connections ahead of the borrowers
+    */
+   public void setValidateAhead(boolean isValidateAhead)
+   {
+      checkIfSealed();
+      this.isValidateAhead = isValidateAhead;
+   }
+
+   /**
+    * Get the order in which idle connections are borrowed from the pool.
+    *
+    * @return the borrow order, one of AFFINITY, MRU, LRU or YOUNGEST_FIRST
+    */
+   public String getBorrowOrder()
+   {
+      return borrowOrder;
+   }
+
+   /**
+    * Set the order in which idle connections are borrowed from the pool.  The default, AFFINITY, first offers
+    * a thread the connections it most recently returned, then the remaining idle connections in the order they
+    * were added to the pool.  This is the fastest, but touches idle connections evenly.  The other orders scan
+    * every connection in the pool on each borrow, and so are best suited to small or moderately sized pools:
+    * <ul>
+    * <li>MRU - the most recently returned connection first, concentrating load on a hot subset of connections
+    * so that the rest reach {@code idleTimeout} and are retired</li>
+    * <li>LRU - the least recently returned connection first, spreading load (and so keepalive) evenly</li>
+    * <li>YOUNGEST_FIRST - the most recently created connection first, leaving connections that are nearing
+    * {@code maxLifetime} idle so that they retire without waiting for a borrower to return them</li>
+    * </ul>
+    *
+    * @param borrowOrder one of AFFINITY, MRU, LRU or YOUNGEST_FIRST
+    */
+   public void setBorrowOrder(String borrowOrder)
+   {
+      checkIfSealed();
+      final String order = borrowOrder.toUpperCase(Locale.ENGLISH);
+      switch (order) {
+      case "AFFINITY":
+      case "MRU":
+      case "LRU":
+      case "YOUNGEST_FIRST":
+         this.borrowOrder = order;
+         break;
+      default:
+         throw new IllegalArgumentException("borrowOrder must be one of AFFINITY, MRU, LRU or YOUNGEST_FIRST");
+      }
+   }
+
    /**
     * Determine whether the Connections in the pool are in read-only mode.
     *
@@ -874,27 +1349,34 @@ public class HikariConfig implements HikariConfigMXBean
    {
       checkIfSealed();
 
-      Class<?> overrideClass = attemptFromContextLoader(exceptionOverrideClassName);
-      try {
-         if (overrideClass == null) {
-            overrideClass = this.getClass().getClassLoader().loadClass(exceptionOverrideClassName);
-            LOGGER.debug("SQLExceptionOverride class {} found in the HikariConfig class classloader {}", exceptionOverrideClassName, this.getClass().getClassLoader());
-         }
-      } catch (ClassNotFoundException e) {
-         LOGGER.error("Failed to load SQLExceptionOverride class {} from HikariConfig class classloader {}", exceptionOverrideClassName, this.getClass().getClassLoader());
-      }
+      verifyInstantiable(exceptionOverrideClassName, "SQLExceptionOverride");
+      this.exceptionOverrideClassName = exceptionOverrideClassName;
+   }
 
-      if (overrideClass == null) {
-         throw new RuntimeException("Failed to load SQLExceptionOverride class " + exceptionOverrideClassName + " in either of HikariConfig class loader or Thread context classloader");
-      }
+   /**
+    * Get the user supplied ConnectionValidator class name.
+    *
+    * @return the user supplied ConnectionValidator class name
+    * @see ConnectionValidator
+    */
+   public String getConnectionValidatorClassName()
+   {
+      return this.connectionValidatorClassName;
+   }
 
-      try {
-         overrideClass.getConstructor().newInstance();
-         this.exceptionOverrideClassName = exceptionOverrideClassName;
-      }
-      catch (Exception e) {
-         throw new RuntimeException("Failed to instantiate class " + exceptionOverrideClassName, e);
-      }
+   /**
+    * Set the user supplied ConnectionValidator class name, which replaces {@link java.sql.Connection#isValid(int)}
+    * and the {@code connectionTestQuery} as the way the pool validates connections.
+    *
+    * @param connectionValidatorClassName the user supplied ConnectionValidator class name
+    * @see ConnectionValidator
+    */
+   public void setConnectionValidatorClassName(String connectionValidatorClassName)
+   {
+      checkIfSealed();
+
+      verifyInstantiable(connectionValidatorClassName, "ConnectionValidator");
+      this.connectionValidatorClassName = connectionValidatorClassName;
    }
 
    /**
@@ -978,6 +1460,30 @@ public class HikariConfig implements HikariConfigMXBean
       return null;
    }
 
+   private void verifyInstantiable(final String className, final String kind)
+   {
+      Class<?> clazz = attemptFromContextLoader(className);
+      try {
+         if (clazz == null) {
+            clazz = this.getClass().getClassLoader().loadClass(className);
+            LOGGER.debug("{} class {} found in the HikariConfig class classloader {}", kind, className, this.getClass().getClassLoader());
+         }
+      } catch (ClassNotFoundException e) {
+         LOGGER.error("Failed to load {} class {} from HikariConfig class classloader {}", kind, className, this.getClass().getClassLoader());
+      }
+
+      if (clazz == null) {
+         throw new RuntimeException("Failed to load " + kind + " class " + className + " in either of HikariConfig class loader or Thread context classloader");
+      }
+
+      try {
+         clazz.getConstructor().newInstance();
+      }
+      catch (Exception e) {
+         throw new RuntimeException("Failed to instantiate class " + className, e);
+      }
+   }
+
    @SuppressWarnings("StatementWithEmptyBody")
    public void validate()
    {
@@ -1061,6 +1567,16 @@ public class HikariConfig implements HikariConfigMXBean
          }
       }
 
+      if (leakReclaimThreshold > 0 && leakReclaimThreshold < SECONDS.toMillis(2) && !unitTest) {
+         LOGGER.warn("{} - leakReclaimThreshold is less than 2000ms, disabling it.", poolName);
+         leakReclaimThreshold = 0;
+      }
+
+      if (leakReclaimThreshold > 0 && leakReclaimThreshold < leakDetectionThreshold) {
+         LOGGER.warn("{} - leakReclaimThreshold is less than leakDetectionThreshold, setting to {}ms.", poolName, leakDetectionThreshold);
+         leakReclaimThreshold = leakDetectionThreshold;
+      }
+
       if (connectionTimeout < 250) {
          LOGGER.warn("{} - connectionTimeout is less than 250ms, setting to {}ms.", poolName, CONNECTION_TIMEOUT);
          connectionTimeout = CONNECTION_TIMEOUT;
@@ -1079,6 +1595,26 @@ public class HikariConfig implements HikariConfigMXBean
          minIdle = maxPoolSize;
       }
 
+      if (connectionCreationParallelism > maxPoolSize) {
+         LOGGER.warn("{} - connectionCreationParallelism is greater than maximumPoolSize, setting to {}.", poolName, maxPoolSize);
+         connectionCreationParallelism = maxPoolSize;
+      }
+
+      if (maxConcurrentRetirements > maxPoolSize) {
+         LOGGER.warn("{} - maxConcurrentRetirements is greater than maximumPoolSize, setting to {}.", poolName, maxPoolSize);
+         maxConcurrentRetirements = maxPoolSize;
+      }
+
+      if (bagStripes > maxPoolSize) {
+         LOGGER.warn("{} - bagStripes is greater than maximumPoolSize, setting to {}.", poolName, maxPoolSize);
+         bagStripes = maxPoolSize;
+      }
+
+      if (highPriorityReserve >= maxPoolSize) {
+         LOGGER.warn("{} - highPriorityReserve is not less than maximumPoolSize, setting to {}.", poolName, maxPoolSize - 1);
+         highPriorityReserve = maxPoolSize - 1;
+      }
+
       if (idleTimeout + SECONDS.toMillis(1) > maxLifetime && maxLifetime > 0 && minIdle < maxPoolSize) {
          LOGGER.warn("{} - idleTimeout is close to or more than maxLifetime, disabling it.", poolName);
          idleTimeout = 0;
@@ -28,7 +28,10 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.zaxxer.hikari.pool.HikariPool.POOL_NORMAL;
 
@@ -42,6 +45,7 @@ public class HikariDataSource extends HikariConfig implements DataSource, Closea
    private static final Logger LOGGER = LoggerFactory.getLogger(HikariDataSource.class);
 
    private final AtomicBoolean isShutdown = new AtomicBoolean();
+   private final ReentrantLock lazyInitLock = new ReentrantLock();
 
    private final HikariPool fastPathPool;
    private volatile HikariPool pool;
@@ -100,10 +104,107 @@ public class HikariDataSource extends HikariConfig implements DataSource, Closea
          return fastPathPool.getConnection();
       }
 
+      return startPool().getConnection();
+   }
+
+   /**
+    * Get a connection from the pool at the specified priority.  While the pool is exhausted, connections
+    * are handed to waiting borrowers of a higher priority first, and only borrowers of
+    * {@link ConnectionPriority#HIGH} priority may take the connections reserved by
+    * {@link HikariConfig#setHighPriorityReserve(int)}.
+    *
+    * @param priority the priority of the borrower
+    * @return a pooled connection
+    * @throws SQLException if a connection cannot be obtained within the connection timeout
+    */
+   public Connection getConnection(final ConnectionPriority priority) throws SQLException
+   {
+      if (isClosed()) {
+         throw new SQLException("HikariDataSource " + this + " has been closed.");
+      }
+
+      return (fastPathPool != null ? fastPathPool : startPool()).getConnection(priority);
+   }
+
+   /**
+    * Get a connection from the pool for a borrower identified by a label, such as a tenant or schema key.
+    * An idle connection last borrowed with the same label is preferred, and the catalog and schema set by
+    * a labelled borrower are left on the connection when it is closed, so that the next borrower with the
+    * same label need not set them again.  They are reset to the pool defaults before the connection is
+    * given to a borrower with another label, or none.
+    *
+    * @param label the borrower's label
+    * @return a pooled connection
+    * @throws SQLException if a connection cannot be obtained within the connection timeout
+    */
+   public Connection getLabelledConnection(final String label) throws SQLException
+   {
+      if (isClosed()) {
+         throw new SQLException("HikariDataSource " + this + " has been closed.");
+      }
+
+      return (fastPathPool != null ? fastPathPool : startPool()).getLabelledConnection(label);
+   }
+
+   /**
+    * Get the specified number of connections from the pool, all or nothing.  Callers that need several
+    * connections at once, for example to run queries in parallel, must use this method rather than
+    * calling {@link #getConnection()} repeatedly; two callers that each hold part of the connections
+    * they need can otherwise wait on each other until they time out.
+    *
+    * The connections are borrowed at {@link ConnectionPriority#NORMAL} priority, so they never include the
+    * connections reserved by {@code highPriorityReserve}.  A request for more connections than the pool can lend at
+    * once, which is {@code maximumPoolSize} (or the lower effective maximum of an adaptive pool) less
+    * {@code highPriorityReserve}, fails immediately rather than holding part of the set until the timeout.
+    *
+    * @param count the number of connections, no more than maximumPoolSize less highPriorityReserve
+    * @param timeoutMs the maximum time to wait for the connections, in milliseconds
+    * @return a list of pooled connections, each of which must be closed
+    * @throws SQLException if the connections cannot be obtained within the timeout, or count exceeds the
+    *         number of connections the pool can lend at once
+    * @see ConnectionFanOut
+    */
+   public List<Connection> getConnections(final int count, final long timeoutMs) throws SQLException
+   {
+      if (isClosed()) {
+         throw new SQLException("HikariDataSource " + this + " has been closed.");
+      }
+
+      return (fastPathPool != null ? fastPathPool : startPool()).getConnections(count, timeoutMs);
+   }
+
+   /**
+    * Get a connection from the pool asynchronously, without blocking the calling thread while
+    * waiting for one to become available.  If this DataSource was created with the default
+    * constructor and not yet started, the pool is started (synchronously) first.
+    *
+    * @return a future completed with a pooled connection, or completed exceptionally with the
+    *         same SQLException that {@link #getConnection()} would throw
+    * @see HikariPool#getConnectionAsync(long)
+    */
+   public CompletableFuture<Connection> getConnectionAsync()
+   {
+      try {
+         if (isClosed()) {
+            throw new SQLException("HikariDataSource " + this + " has been closed.");
+         }
+
+         return (fastPathPool != null ? fastPathPool : startPool()).getConnectionAsync();
+      }
+      catch (SQLException | RuntimeException e) {
+         final CompletableFuture<Connection> failed = new CompletableFuture<>();
+         failed.completeExceptionally(e);
+         return failed;
+      }
+   }
+
+   private HikariPool startPool() throws SQLException
+   {
       // See http://en.wikipedia.org/wiki/Double-checked_locking#Usage_in_Java
       HikariPool result = pool;
       if (result == null) {
-         synchronized (this) {
+         lazyInitLock.lock();
+         try {
             result = pool;
             if (result == null) {
                validate();
@@ -123,9 +224,12 @@ public class HikariDataSource extends HikariConfig implements DataSource, Closea
                LOGGER.info("{} - Start completed.", getPoolName());
             }
          }
+         finally {
+            lazyInitLock.unlock();
+         }
       }
 
-      return result.getConnection();
+      return result;
    }
 
    /** {@inheritDoc} */
@@ -65,6 +65,30 @@ public interface HikariPoolMXBean
     */
    int getThreadsAwaitingConnection();
 
+   /**
+    * Get the forecast of the concurrent demand for connections (active connections plus threads awaiting
+    * connections) at the next house keeping run.  The forecast is only maintained when
+    * {@link HikariConfig#setPredictiveMinimumIdle(boolean)} is enabled; otherwise zero is returned.
+    *
+    * @return the forecast number of concurrently used connections
+    */
+   default double getConnectionDemandForecast()
+   {
+      return 0;
+   }
+
+   /**
+    * Get the number of connections the pool currently keeps open even when they are idle.  This is the
+    * larger of the forecast demand (see {@link #getConnectionDemandForecast()}) and {@code minimumIdle},
+    * bounded by {@code maximumPoolSize}.
+    *
+    * @return the effective minimum number of connections in the pool
+    */
+   default int getEffectiveMinimumConnections()
+   {
+      return 0;
+   }
+
    /**
     * Evict currently idle connections from the pool, and mark active (in-use) connections for eviction when they are
     * returned to the pool.
@@ -29,6 +29,37 @@ public interface IMetricsTracker extends AutoCloseable
 
    default void recordConnectionTimeout() {}
 
+   /**
+    * A labelled borrow was given a connection last used with the same label, whose session state was preserved.
+    */
+   default void recordLabelAffinityHit() {}
+
+   /**
+    * A labelled borrow was given a connection last used without, or with a different, label.
+    */
+   default void recordLabelAffinityMiss() {}
+
+   /**
+    * The retirement of a connection was scheduled by the rate-capped retirement scheduler.
+    *
+    * @param shiftMillis how far the retirement was moved from the time it was due, so that no more than the
+    *                    configured number of connections retire per interval; negative if it was brought forward
+    */
+   default void recordConnectionRetirementShiftMillis(final long shiftMillis) {}
+
+   /**
+    * A borrower was rejected without waiting because {@code maxWaiters} threads were already waiting.
+    */
+   default void recordConnectionRejected() {}
+
+   /**
+    * A connection was reclaimed because it was out of the pool for longer than {@code leakReclaimThreshold}.
+    *
+    * @param callSite the first frame outside of the pool where the connection was borrowed, or "unknown" if the
+    *                 call site of the borrow was not sampled
+    */
+   default void recordConnectionLeakReclaimed(final String callSite) {}
+
    @Override
    default void close() {}
 }
@@ -32,14 +32,24 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
    private final Timer connectionObtainTimer;
    private final Histogram connectionUsage;
    private final Histogram connectionCreation;
+   private final Histogram retirementShift;
    private final Meter connectionTimeoutMeter;
+   private final Meter connectionRejectedMeter;
+   private final Meter connectionLeakReclaimedMeter;
+   private final Meter labelAffinityHitMeter;
+   private final Meter labelAffinityMissMeter;
    private final MetricRegistry registry;
 
    private static final String METRIC_CATEGORY = "pool";
    private static final String METRIC_NAME_WAIT = "Wait";
    private static final String METRIC_NAME_USAGE = "Usage";
    private static final String METRIC_NAME_CONNECT = "ConnectionCreation";
+   private static final String METRIC_NAME_RETIREMENT_SHIFT = "RetirementShift";
    private static final String METRIC_NAME_TIMEOUT_RATE = "ConnectionTimeoutRate";
+   private static final String METRIC_NAME_REJECTED_RATE = "ConnectionRejectedRate";
+   private static final String METRIC_NAME_LEAK_RECLAIMED_RATE = "ConnectionLeakReclaimedRate";
+   private static final String METRIC_NAME_LABEL_AFFINITY_HIT_RATE = "LabelAffinityHitRate";
+   private static final String METRIC_NAME_LABEL_AFFINITY_MISS_RATE = "LabelAffinityMissRate";
    private static final String METRIC_NAME_TOTAL_CONNECTIONS = "TotalConnections";
    private static final String METRIC_NAME_IDLE_CONNECTIONS = "IdleConnections";
    private static final String METRIC_NAME_ACTIVE_CONNECTIONS = "ActiveConnections";
@@ -54,7 +64,12 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
       this.connectionObtainTimer = registry.timer(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_WAIT));
       this.connectionUsage = registry.histogram(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_USAGE));
       this.connectionCreation = registry.histogram(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_CONNECT));
+      this.retirementShift = registry.histogram(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_RETIREMENT_SHIFT));
       this.connectionTimeoutMeter = registry.meter(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_TIMEOUT_RATE));
+      this.connectionRejectedMeter = registry.meter(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_REJECTED_RATE));
+      this.connectionLeakReclaimedMeter = registry.meter(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_LEAK_RECLAIMED_RATE));
+      this.labelAffinityHitMeter = registry.meter(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_LABEL_AFFINITY_HIT_RATE));
+      this.labelAffinityMissMeter = registry.meter(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_LABEL_AFFINITY_MISS_RATE));
 
       registry.register(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_TOTAL_CONNECTIONS),
          (Gauge<Integer>) poolStats::getTotalConnections);
@@ -82,7 +97,12 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_WAIT));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_USAGE));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_CONNECT));
+      registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_RETIREMENT_SHIFT));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_TIMEOUT_RATE));
+      registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_REJECTED_RATE));
+      registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_LEAK_RECLAIMED_RATE));
+      registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_LABEL_AFFINITY_HIT_RATE));
+      registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_LABEL_AFFINITY_MISS_RATE));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_TOTAL_CONNECTIONS));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_IDLE_CONNECTIONS));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_ACTIVE_CONNECTIONS));
@@ -111,12 +131,46 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
       connectionTimeoutMeter.mark();
    }
 
+   @Override
+   public void recordConnectionRejected()
+   {
+      connectionRejectedMeter.mark();
+   }
+
+   /**
+    * Dropwizard metric names are flat, so reclaims from every call site share one meter; the call site itself
+    * is logged by the pool when the connection is reclaimed.
+    */
+   @Override
+   public void recordConnectionLeakReclaimed(final String callSite)
+   {
+      connectionLeakReclaimedMeter.mark();
+   }
+
    @Override
    public void recordConnectionCreatedMillis(long connectionCreatedMillis)
    {
       connectionCreation.update(connectionCreatedMillis);
    }
 
+   @Override
+   public void recordConnectionRetirementShiftMillis(final long shiftMillis)
+   {
+      retirementShift.update(shiftMillis);
+   }
+
+   @Override
+   public void recordLabelAffinityHit()
+   {
+      labelAffinityHitMeter.mark();
+   }
+
+   @Override
+   public void recordLabelAffinityMiss()
+   {
+      labelAffinityMissMeter.mark();
+   }
+
    public Timer getConnectionAcquisitionTimer()
    {
       return connectionObtainTimer;
@@ -131,4 +185,9 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
    {
       return connectionCreation;
    }
+
+   public Histogram getRetirementShiftHistogram()
+   {
+      return retirementShift;
+   }
 }
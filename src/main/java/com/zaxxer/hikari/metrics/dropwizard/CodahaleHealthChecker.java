@@ -26,6 +26,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheck;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.zaxxer.hikari.ConnectionPriority;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.pool.HikariPool;
 
@@ -92,7 +93,7 @@ public final class CodahaleHealthChecker
       @Override
       protected Result check() throws Exception
       {
-         try (Connection connection = pool.getConnection(checkTimeoutMs)) {
+         try (Connection connection = pool.getConnection(checkTimeoutMs, ConnectionPriority.HIGH)) {
             return Result.healthy();
          }
          catch (SQLException e) {
@@ -3,10 +3,13 @@ package com.zaxxer.hikari.metrics.micrometer;
 import com.zaxxer.hikari.metrics.IMetricsTracker;
 import com.zaxxer.hikari.metrics.PoolStats;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -41,6 +44,13 @@ public class MicrometerMetricsTracker implements IMetricsTracker
    private static final String METRIC_NAME_CONNECT = HIKARI_METRIC_NAME_PREFIX + ".connections.creation";
 
    private static final String METRIC_NAME_TIMEOUT_RATE = HIKARI_METRIC_NAME_PREFIX + ".connections.timeout";
+   private static final String METRIC_NAME_REJECTED_RATE = HIKARI_METRIC_NAME_PREFIX + ".connections.rejected";
+   private static final String METRIC_NAME_LEAK_RECLAIMED_RATE = HIKARI_METRIC_NAME_PREFIX + ".connections.leak.reclaimed";
+   private static final String METRIC_NAME_LABEL_AFFINITY_HIT_RATE = HIKARI_METRIC_NAME_PREFIX + ".connections.label.hit";
+   private static final String METRIC_NAME_LABEL_AFFINITY_MISS_RATE = HIKARI_METRIC_NAME_PREFIX + ".connections.label.miss";
+   private static final String METRIC_NAME_RETIREMENT_SHIFT = HIKARI_METRIC_NAME_PREFIX + ".connections.retirement.shift";
+   private static final String METRIC_DIRECTION = "direction";
+   private static final String METRIC_CALL_SITE = "callsite";
    private static final String METRIC_NAME_TOTAL_CONNECTIONS = HIKARI_METRIC_NAME_PREFIX + ".connections";
    private static final String METRIC_NAME_IDLE_CONNECTIONS = HIKARI_METRIC_NAME_PREFIX + ".connections.idle";
    private static final String METRIC_NAME_ACTIVE_CONNECTIONS = HIKARI_METRIC_NAME_PREFIX + ".connections.active";
@@ -50,6 +60,15 @@ public class MicrometerMetricsTracker implements IMetricsTracker
 
    private final Timer connectionObtainTimer;
    private final Counter connectionTimeoutCounter;
+   private final Counter connectionRejectedCounter;
+   private final Counter labelAffinityHitCounter;
+   private final Counter labelAffinityMissCounter;
+   // a distribution summary ignores negative amounts, so retirements moved earlier are recorded apart
+   private final DistributionSummary retirementDelayedSummary;
+   private final DistributionSummary retirementAdvancedSummary;
+   // by call site, which are few as they are the code paths that leak
+   private final Map<String, Counter> leakReclaimedCounters = new ConcurrentHashMap<>();
+   private final String poolName;
    private final Timer connectionUsage;
    private final Timer connectionCreation;
    @SuppressWarnings("FieldCanBeLocal")
@@ -76,6 +95,7 @@ public class MicrometerMetricsTracker implements IMetricsTracker
       this.poolStats = poolStats;  // DO NOT REMOVE
 
       this.meterRegistry = meterRegistry;
+      this.poolName = poolName;
 
       this.connectionObtainTimer = Timer.builder(METRIC_NAME_WAIT)
          .description("Connection acquire time")
@@ -97,6 +117,33 @@ public class MicrometerMetricsTracker implements IMetricsTracker
          .tags(METRIC_CATEGORY, poolName)
          .register(meterRegistry);
 
+      this.connectionRejectedCounter = Counter.builder(METRIC_NAME_REJECTED_RATE)
+         .description("Connection requests rejected because the waiter queue was full, total count")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
+      this.labelAffinityHitCounter = Counter.builder(METRIC_NAME_LABEL_AFFINITY_HIT_RATE)
+         .description("Labelled borrows given a connection last used with the same label, total count")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
+      this.labelAffinityMissCounter = Counter.builder(METRIC_NAME_LABEL_AFFINITY_MISS_RATE)
+         .description("Labelled borrows given a connection last used without, or with a different, label, total count")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
+      this.retirementDelayedSummary = DistributionSummary.builder(METRIC_NAME_RETIREMENT_SHIFT)
+         .description("How far retirements were moved later to cap the retirements per interval")
+         .baseUnit("milliseconds")
+         .tags(METRIC_CATEGORY, poolName, METRIC_DIRECTION, "later")
+         .register(meterRegistry);
+
+      this.retirementAdvancedSummary = DistributionSummary.builder(METRIC_NAME_RETIREMENT_SHIFT)
+         .description("How far retirements were moved earlier to cap the retirements per interval")
+         .baseUnit("milliseconds")
+         .tags(METRIC_CATEGORY, poolName, METRIC_DIRECTION, "earlier")
+         .register(meterRegistry);
+
       this.totalConnectionGauge = Gauge.builder(METRIC_NAME_TOTAL_CONNECTIONS, poolStats, PoolStats::getTotalConnections)
          .description("Total connections")
          .tags(METRIC_CATEGORY, poolName)
@@ -149,6 +196,45 @@ public class MicrometerMetricsTracker implements IMetricsTracker
       connectionTimeoutCounter.increment();
    }
 
+   @Override
+   public void recordLabelAffinityHit()
+   {
+      labelAffinityHitCounter.increment();
+   }
+
+   @Override
+   public void recordLabelAffinityMiss()
+   {
+      labelAffinityMissCounter.increment();
+   }
+
+   @Override
+   public void recordConnectionRetirementShiftMillis(final long shiftMillis)
+   {
+      if (shiftMillis < 0) {
+         retirementAdvancedSummary.record(-shiftMillis);
+      }
+      else {
+         retirementDelayedSummary.record(shiftMillis);
+      }
+   }
+
+   @Override
+   public void recordConnectionRejected()
+   {
+      connectionRejectedCounter.increment();
+   }
+
+   @Override
+   public void recordConnectionLeakReclaimed(final String callSite)
+   {
+      leakReclaimedCounters.computeIfAbsent(callSite, site -> Counter.builder(METRIC_NAME_LEAK_RECLAIMED_RATE)
+         .description("Connections reclaimed because they were out of the pool for longer than leakReclaimThreshold, total count")
+         .tags(METRIC_CATEGORY, poolName, METRIC_CALL_SITE, site)
+         .register(meterRegistry))
+         .increment();
+   }
+
    @Override
    public void recordConnectionCreatedMillis(long connectionCreatedMillis)
    {
@@ -159,6 +245,12 @@ public class MicrometerMetricsTracker implements IMetricsTracker
    public void close() {
       meterRegistry.remove(connectionObtainTimer);
       meterRegistry.remove(connectionTimeoutCounter);
+      meterRegistry.remove(connectionRejectedCounter);
+      meterRegistry.remove(labelAffinityHitCounter);
+      meterRegistry.remove(labelAffinityMissCounter);
+      meterRegistry.remove(retirementDelayedSummary);
+      meterRegistry.remove(retirementAdvancedSummary);
+      leakReclaimedCounters.values().forEach(meterRegistry::remove);
       meterRegistry.remove(connectionUsage);
       meterRegistry.remove(connectionCreation);
       meterRegistry.remove(totalConnectionGauge);
@@ -42,6 +42,30 @@ class PrometheusHistogramMetricsTracker implements IMetricsTracker
       .help("Connection timeout total count")
       .create();
 
+   private static final Counter CONNECTION_REJECTED_COUNTER = Counter.build()
+      .name("hikaricp_connection_rejected_total")
+      .labelNames("pool")
+      .help("Connection requests rejected because the waiter queue was full, total count")
+      .create();
+
+   private static final Counter CONNECTION_LEAK_RECLAIMED_COUNTER = Counter.build()
+      .name("hikaricp_connection_leak_reclaimed_total")
+      .labelNames("pool", "callsite")
+      .help("Connections reclaimed because they were out of the pool for longer than leakReclaimThreshold, total count")
+      .create();
+
+   private static final Counter LABEL_AFFINITY_HIT_COUNTER = Counter.build()
+      .name("hikaricp_label_affinity_hit_total")
+      .labelNames("pool")
+      .help("Labelled borrows given a connection last used with the same label, total count")
+      .create();
+
+   private static final Counter LABEL_AFFINITY_MISS_COUNTER = Counter.build()
+      .name("hikaricp_label_affinity_miss_total")
+      .labelNames("pool")
+      .help("Labelled borrows given a connection last used without, or with a different, label, total count")
+      .create();
+
    private static final Histogram ELAPSED_ACQUIRED_HISTOGRAM =
       registerHistogram("hikaricp_connection_acquired_nanos", "Connection acquired time (ns)", 1_000);
 
@@ -51,7 +75,19 @@ class PrometheusHistogramMetricsTracker implements IMetricsTracker
    private static final Histogram ELAPSED_CREATION_HISTOGRAM =
       registerHistogram("hikaricp_connection_creation_millis", "Connection creation (ms)", 1);
 
+   // the shift is negative for a retirement moved earlier, so its buckets are symmetric around zero
+   private static final Histogram RETIREMENT_SHIFT_HISTOGRAM = Histogram.build()
+      .name("hikaricp_connection_retirement_shift_millis")
+      .labelNames("pool")
+      .help("Connection retirement shift, negative if earlier (ms)")
+      .buckets(-300_000, -60_000, -10_000, -1_000, 0, 1_000, 10_000, 60_000, 300_000)
+      .create();
+
    private final Counter.Child connectionTimeoutCounterChild;
+   private final Counter.Child connectionRejectedCounterChild;
+   private final Map<String, Counter.Child> leakReclaimedCounterChildren = new ConcurrentHashMap<>();
+   private final Counter.Child labelAffinityHitCounterChild;
+   private final Counter.Child labelAffinityMissCounterChild;
 
    private static Histogram registerHistogram(String name, String help, double bucketStart) {
       return Histogram.build()
@@ -70,23 +106,33 @@ class PrometheusHistogramMetricsTracker implements IMetricsTracker
    private final Histogram.Child elapsedAcquiredHistogramChild;
    private final Histogram.Child elapsedBorrowedHistogramChild;
    private final Histogram.Child elapsedCreationHistogramChild;
+   private final Histogram.Child retirementShiftHistogramChild;
 
    PrometheusHistogramMetricsTracker(String poolName, CollectorRegistry collectorRegistry, HikariCPCollector hikariCPCollector) {
       registerMetrics(collectorRegistry);
       this.poolName = poolName;
       this.hikariCPCollector = hikariCPCollector;
       this.connectionTimeoutCounterChild = CONNECTION_TIMEOUT_COUNTER.labels(poolName);
+      this.connectionRejectedCounterChild = CONNECTION_REJECTED_COUNTER.labels(poolName);
+      this.labelAffinityHitCounterChild = LABEL_AFFINITY_HIT_COUNTER.labels(poolName);
+      this.labelAffinityMissCounterChild = LABEL_AFFINITY_MISS_COUNTER.labels(poolName);
       this.elapsedAcquiredHistogramChild = ELAPSED_ACQUIRED_HISTOGRAM.labels(poolName);
       this.elapsedBorrowedHistogramChild = ELAPSED_BORROWED_HISTOGRAM.labels(poolName);
       this.elapsedCreationHistogramChild = ELAPSED_CREATION_HISTOGRAM.labels(poolName);
+      this.retirementShiftHistogramChild = RETIREMENT_SHIFT_HISTOGRAM.labels(poolName);
    }
 
    private void registerMetrics(CollectorRegistry collectorRegistry) {
       if (registrationStatuses.putIfAbsent(collectorRegistry, REGISTERED) == null) {
          CONNECTION_TIMEOUT_COUNTER.register(collectorRegistry);
+         CONNECTION_REJECTED_COUNTER.register(collectorRegistry);
+         CONNECTION_LEAK_RECLAIMED_COUNTER.register(collectorRegistry);
+         LABEL_AFFINITY_HIT_COUNTER.register(collectorRegistry);
+         LABEL_AFFINITY_MISS_COUNTER.register(collectorRegistry);
          ELAPSED_ACQUIRED_HISTOGRAM.register(collectorRegistry);
          ELAPSED_BORROWED_HISTOGRAM.register(collectorRegistry);
          ELAPSED_CREATION_HISTOGRAM.register(collectorRegistry);
+         RETIREMENT_SHIFT_HISTOGRAM.register(collectorRegistry);
       }
    }
 
@@ -105,17 +151,47 @@ class PrometheusHistogramMetricsTracker implements IMetricsTracker
       elapsedCreationHistogramChild.observe(connectionCreatedMillis);
    }
 
+   @Override
+   public void recordConnectionRetirementShiftMillis(long shiftMillis) {
+      retirementShiftHistogramChild.observe(shiftMillis);
+   }
+
    @Override
    public void recordConnectionTimeout() {
       connectionTimeoutCounterChild.inc();
    }
 
+   @Override
+   public void recordConnectionRejected() {
+      connectionRejectedCounterChild.inc();
+   }
+
+   @Override
+   public void recordConnectionLeakReclaimed(final String callSite) {
+      leakReclaimedCounterChildren.computeIfAbsent(callSite, site -> CONNECTION_LEAK_RECLAIMED_COUNTER.labels(poolName, site)).inc();
+   }
+
+   @Override
+   public void recordLabelAffinityHit() {
+      labelAffinityHitCounterChild.inc();
+   }
+
+   @Override
+   public void recordLabelAffinityMiss() {
+      labelAffinityMissCounterChild.inc();
+   }
+
    @Override
    public void close() {
       hikariCPCollector.remove(poolName);
       CONNECTION_TIMEOUT_COUNTER.remove(poolName);
+      CONNECTION_REJECTED_COUNTER.remove(poolName);
+      leakReclaimedCounterChildren.keySet().forEach(site -> CONNECTION_LEAK_RECLAIMED_COUNTER.remove(poolName, site));
+      LABEL_AFFINITY_HIT_COUNTER.remove(poolName);
+      LABEL_AFFINITY_MISS_COUNTER.remove(poolName);
       ELAPSED_ACQUIRED_HISTOGRAM.remove(poolName);
       ELAPSED_BORROWED_HISTOGRAM.remove(poolName);
       ELAPSED_CREATION_HISTOGRAM.remove(poolName);
+      RETIREMENT_SHIFT_HISTOGRAM.remove(poolName);
    }
 }
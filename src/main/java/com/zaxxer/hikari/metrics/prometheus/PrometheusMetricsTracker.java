@@ -36,6 +36,30 @@ class PrometheusMetricsTracker implements IMetricsTracker
       .help("Connection timeout total count")
       .create();
 
+   private final static Counter CONNECTION_REJECTED_COUNTER = Counter.build()
+      .name("hikaricp_connection_rejected_total")
+      .labelNames("pool")
+      .help("Connection requests rejected because the waiter queue was full, total count")
+      .create();
+
+   private final static Counter CONNECTION_LEAK_RECLAIMED_COUNTER = Counter.build()
+      .name("hikaricp_connection_leak_reclaimed_total")
+      .labelNames("pool", "callsite")
+      .help("Connections reclaimed because they were out of the pool for longer than leakReclaimThreshold, total count")
+      .create();
+
+   private final static Counter LABEL_AFFINITY_HIT_COUNTER = Counter.build()
+      .name("hikaricp_label_affinity_hit_total")
+      .labelNames("pool")
+      .help("Labelled borrows given a connection last used with the same label, total count")
+      .create();
+
+   private final static Counter LABEL_AFFINITY_MISS_COUNTER = Counter.build()
+      .name("hikaricp_label_affinity_miss_total")
+      .labelNames("pool")
+      .help("Labelled borrows given a connection last used without, or with a different, label, total count")
+      .create();
+
    private final static Summary ELAPSED_ACQUIRED_SUMMARY =
       createSummary("hikaricp_connection_acquired_nanos", "Connection acquired time (ns)");
 
@@ -45,16 +69,24 @@ class PrometheusMetricsTracker implements IMetricsTracker
    private final static Summary ELAPSED_CREATION_SUMMARY =
       createSummary("hikaricp_connection_creation_millis", "Connection creation (ms)");
 
+   private final static Summary RETIREMENT_SHIFT_SUMMARY =
+      createSummary("hikaricp_connection_retirement_shift_millis", "Connection retirement shift, negative if earlier (ms)");
+
    private final static Map<CollectorRegistry, RegistrationStatus> registrationStatuses = new ConcurrentHashMap<>();
 
    private final String poolName;
    private final HikariCPCollector hikariCPCollector;
 
    private final Counter.Child connectionTimeoutCounterChild;
+   private final Counter.Child connectionRejectedCounterChild;
+   private final Map<String, Counter.Child> leakReclaimedCounterChildren = new ConcurrentHashMap<>();
+   private final Counter.Child labelAffinityHitCounterChild;
+   private final Counter.Child labelAffinityMissCounterChild;
 
    private final Summary.Child elapsedAcquiredSummaryChild;
    private final Summary.Child elapsedUsageSummaryChild;
    private final Summary.Child elapsedCreationSummaryChild;
+   private final Summary.Child retirementShiftSummaryChild;
 
    PrometheusMetricsTracker(String poolName, CollectorRegistry collectorRegistry, HikariCPCollector hikariCPCollector)
    {
@@ -62,18 +94,27 @@ class PrometheusMetricsTracker implements IMetricsTracker
       this.poolName = poolName;
       this.hikariCPCollector = hikariCPCollector;
       this.connectionTimeoutCounterChild = CONNECTION_TIMEOUT_COUNTER.labels(poolName);
+      this.connectionRejectedCounterChild = CONNECTION_REJECTED_COUNTER.labels(poolName);
+      this.labelAffinityHitCounterChild = LABEL_AFFINITY_HIT_COUNTER.labels(poolName);
+      this.labelAffinityMissCounterChild = LABEL_AFFINITY_MISS_COUNTER.labels(poolName);
       this.elapsedAcquiredSummaryChild = ELAPSED_ACQUIRED_SUMMARY.labels(poolName);
       this.elapsedUsageSummaryChild = ELAPSED_USAGE_SUMMARY.labels(poolName);
       this.elapsedCreationSummaryChild = ELAPSED_CREATION_SUMMARY.labels(poolName);
+      this.retirementShiftSummaryChild = RETIREMENT_SHIFT_SUMMARY.labels(poolName);
    }
 
    private void registerMetrics(CollectorRegistry collectorRegistry)
    {
       if (registrationStatuses.putIfAbsent(collectorRegistry, REGISTERED) == null) {
          CONNECTION_TIMEOUT_COUNTER.register(collectorRegistry);
+         CONNECTION_REJECTED_COUNTER.register(collectorRegistry);
+         CONNECTION_LEAK_RECLAIMED_COUNTER.register(collectorRegistry);
+         LABEL_AFFINITY_HIT_COUNTER.register(collectorRegistry);
+         LABEL_AFFINITY_MISS_COUNTER.register(collectorRegistry);
          ELAPSED_ACQUIRED_SUMMARY.register(collectorRegistry);
          ELAPSED_USAGE_SUMMARY.register(collectorRegistry);
          ELAPSED_CREATION_SUMMARY.register(collectorRegistry);
+         RETIREMENT_SHIFT_SUMMARY.register(collectorRegistry);
       }
    }
 
@@ -95,12 +136,42 @@ class PrometheusMetricsTracker implements IMetricsTracker
       elapsedCreationSummaryChild.observe(connectionCreatedMillis);
    }
 
+   @Override
+   public void recordConnectionRetirementShiftMillis(long shiftMillis)
+   {
+      retirementShiftSummaryChild.observe(shiftMillis);
+   }
+
    @Override
    public void recordConnectionTimeout()
    {
       connectionTimeoutCounterChild.inc();
    }
 
+   @Override
+   public void recordConnectionRejected()
+   {
+      connectionRejectedCounterChild.inc();
+   }
+
+   @Override
+   public void recordConnectionLeakReclaimed(final String callSite)
+   {
+      leakReclaimedCounterChildren.computeIfAbsent(callSite, site -> CONNECTION_LEAK_RECLAIMED_COUNTER.labels(poolName, site)).inc();
+   }
+
+   @Override
+   public void recordLabelAffinityHit()
+   {
+      labelAffinityHitCounterChild.inc();
+   }
+
+   @Override
+   public void recordLabelAffinityMiss()
+   {
+      labelAffinityMissCounterChild.inc();
+   }
+
    private static Summary createSummary(String name, String help)
    {
       return Summary.build()
@@ -120,8 +191,13 @@ class PrometheusMetricsTracker implements IMetricsTracker
    {
       hikariCPCollector.remove(poolName);
       CONNECTION_TIMEOUT_COUNTER.remove(poolName);
+      CONNECTION_REJECTED_COUNTER.remove(poolName);
+      leakReclaimedCounterChildren.keySet().forEach(site -> CONNECTION_LEAK_RECLAIMED_COUNTER.remove(poolName, site));
+      LABEL_AFFINITY_HIT_COUNTER.remove(poolName);
+      LABEL_AFFINITY_MISS_COUNTER.remove(poolName);
       ELAPSED_ACQUIRED_SUMMARY.remove(poolName);
       ELAPSED_USAGE_SUMMARY.remove(poolName);
       ELAPSED_CREATION_SUMMARY.remove(poolName);
+      RETIREMENT_SHIFT_SUMMARY.remove(poolName);
    }
 }
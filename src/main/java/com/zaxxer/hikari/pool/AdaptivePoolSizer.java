@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.pool.PoolBase.IMetricsTrackerDelegate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedNanos;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * An AIMD (additive increase, multiplicative decrease) controller of the effective maximum pool size.
+ * It sits in front of the pool's metrics delegate, and so observes every borrow, return, timeout and
+ * connection creation.  On each tick it compares the average connection usage time and creation time
+ * of the tick with their long-term baselines.  If either has grown by more than {@link #TOLERANCE}
+ * times, the database is taken to be slowing down and the limit is cut by {@link #BACKOFF}, so that
+ * fewer connections queue work on it.  Otherwise, while borrowers are waiting or timing out and the pool
+ * is at its limit, the limit grows by one connection per tick, up to maximumPoolSize.
+ *
+ * @author Brett Wooldridge
+ */
+final class AdaptivePoolSizer implements IMetricsTrackerDelegate
+{
+   static final double TOLERANCE = 2.0;
+   static final double BACKOFF = 0.75;
+
+   private static final double BASELINE_ALPHA = 0.1;
+   private static final double CONGESTED_BASELINE_ALPHA = 0.01;
+   private static final long MIN_USAGE_DELTA_NS = MILLISECONDS.toNanos(1);
+   private static final long MIN_CREATION_DELTA_NS = MILLISECONDS.toNanos(10);
+   private static final long ACQUIRE_WAIT_NS = MILLISECONDS.toNanos(1);
+
+   private final HikariConfig config;
+   private IMetricsTrackerDelegate delegate;
+
+   private final LongAdder acquireNanos = new LongAdder();
+   private final LongAdder acquireCount = new LongAdder();
+   private final LongAdder usageNanos = new LongAdder();
+   private final LongAdder usageCount = new LongAdder();
+   private final LongAdder creationNanos = new LongAdder();
+   private final LongAdder creationCount = new LongAdder();
+   private final LongAdder timeouts = new LongAdder();
+
+   // only accessed by the tick
+   private double usageBaseline;
+   private double creationBaseline;
+
+   private volatile int limit;
+
+   AdaptivePoolSizer(final HikariConfig config)
+   {
+      this.config = config;
+      this.limit = config.getMaximumPoolSize();
+   }
+
+   /**
+    * Observe the calls made to the specified delegate.
+    *
+    * @param delegate the pool's metrics delegate
+    * @return this sizer, which forwards every call to the delegate
+    */
+   IMetricsTrackerDelegate wrap(final IMetricsTrackerDelegate delegate)
+   {
+      this.delegate = delegate;
+      return this;
+   }
+
+   /**
+    * Get the current effective maximum pool size.
+    *
+    * @return the limit, between {@link #floor()} and maximumPoolSize
+    */
+   int getLimit()
+   {
+      return Math.min(limit, config.getMaximumPoolSize());
+   }
+
+   /**
+    * Compute the limit for the next tick from the signals observed since the last one.
+    *
+    * @param totalConnections the number of connections in the pool
+    * @param waiting the number of borrowers waiting for a connection
+    * @return the new limit
+    */
+   int update(final int totalConnections, final int waiting)
+   {
+      final long usageN = usageCount.sumThenReset();
+      final long usageNs = usageNanos.sumThenReset();
+      final long creationN = creationCount.sumThenReset();
+      final long creationNs = creationNanos.sumThenReset();
+      final long acquireN = acquireCount.sumThenReset();
+      final long acquireNs = acquireNanos.sumThenReset();
+      final long timedOut = timeouts.sumThenReset();
+
+      boolean congested = false;
+      if (usageN > 0) {
+         final double usage = (double) usageNs / usageN;
+         congested = isCongested(usage, usageBaseline, MIN_USAGE_DELTA_NS);
+         usageBaseline = updateBaseline(usage, usageBaseline, congested);
+      }
+
+      if (creationN > 0) {
+         final double creation = (double) creationNs / creationN;
+         final boolean slowCreation = isCongested(creation, creationBaseline, MIN_CREATION_DELTA_NS);
+         creationBaseline = updateBaseline(creation, creationBaseline, slowCreation);
+         congested |= slowCreation;
+      }
+
+      final int current = getLimit();
+      final boolean demand = waiting > 0 || timedOut > 0 || (acquireN > 0 && acquireNs / acquireN > ACQUIRE_WAIT_NS);
+      if (congested) {
+         limit = Math.max(floor(), (int) (current * BACKOFF));
+      }
+      else if (demand && totalConnections >= current) {
+         limit = Math.min(config.getMaximumPoolSize(), current + 1);
+      }
+      else {
+         limit = current;
+      }
+
+      return limit;
+   }
+
+   /**
+    * The lowest the limit may go, minimumIdle but at least one connection.
+    */
+   int floor()
+   {
+      return Math.max(1, Math.min(config.getMinimumIdle(), config.getMaximumPoolSize()));
+   }
+
+   void recordAcquireNanos(final long nanos)
+   {
+      acquireNanos.add(nanos);
+      acquireCount.increment();
+   }
+
+   void recordUsageNanos(final long nanos)
+   {
+      usageNanos.add(nanos);
+      usageCount.increment();
+   }
+
+   void recordCreationNanos(final long nanos)
+   {
+      creationNanos.add(nanos);
+      creationCount.increment();
+   }
+
+   private static boolean isCongested(final double sample, final double baseline, final long minDelta)
+   {
+      return baseline > 0 && sample > TOLERANCE * baseline && sample - baseline > minDelta;
+   }
+
+   private static double updateBaseline(final double sample, final double baseline, final boolean congested)
+   {
+      if (baseline == 0) {
+         return sample;
+      }
+
+      // while congested, the baseline still drifts slowly so that a lasting change becomes the new normal
+      return baseline + (congested ? CONGESTED_BASELINE_ALPHA : BASELINE_ALPHA) * (sample - baseline);
+   }
+
+   // ***********************************************************************
+   //                     IMetricsTrackerDelegate methods
+   // ***********************************************************************
+
+   @Override
+   public void recordConnectionUsage(final PoolEntry poolEntry)
+   {
+      recordUsageNanos(elapsedNanos(poolEntry.lastBorrowed));
+      delegate.recordConnectionUsage(poolEntry);
+   }
+
+   @Override
+   public void recordConnectionCreated(final long connectionCreatedMillis)
+   {
+      recordCreationNanos(MILLISECONDS.toNanos(connectionCreatedMillis));
+      delegate.recordConnectionCreated(connectionCreatedMillis);
+   }
+
+   @Override
+   public void recordBorrowTimeoutStats(final long startTime)
+   {
+      timeouts.increment();
+      delegate.recordBorrowTimeoutStats(startTime);
+   }
+
+   @Override
+   public void recordBorrowStats(final PoolEntry poolEntry, final long startTime)
+   {
+      final long now = currentTime();
+      recordAcquireNanos(elapsedNanos(startTime, now));
+      delegate.recordBorrowStats(poolEntry, startTime);
+      // the no-op delegate does not track the borrow time
+      poolEntry.lastBorrowed = now;
+   }
+
+   @Override
+   public void recordConnectionTimeout()
+   {
+      delegate.recordConnectionTimeout();
+   }
+
+   @Override
+   public void recordLabelAffinity(final boolean hit)
+   {
+      delegate.recordLabelAffinity(hit);
+   }
+
+   @Override
+   public void recordRetirementShift(final long shiftMillis)
+   {
+      delegate.recordRetirementShift(shiftMillis);
+   }
+
+   @Override
+   public void recordBorrowRejected()
+   {
+      // a rejected borrower is unmet demand, just as one that timed out
+      timeouts.increment();
+      delegate.recordBorrowRejected();
+   }
+
+   @Override
+   public void recordLeakReclaimed(final String callSite)
+   {
+      delegate.recordLeakReclaimed(callSite);
+   }
+
+   @Override
+   public void close()
+   {
+      delegate.close();
+   }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The window within which a connection that was used or validated is handed to a borrower without validating it
+ * again.  Unless it is fixed, the window follows an exponentially weighted rate of the validations that failed: it
+ * is at its maximum while every recent validation succeeded, and back at its minimum once the rate reaches
+ * {@link #FLAKY_RATE}, which a single failure is enough to do.
+ *
+ * @author Brett Wooldridge
+ */
+final class AliveBypassWindow
+{
+   // the weight of each validation in the failure rate
+   private static final double ALPHA = 0.05;
+   // the failure rate at which the window is at its minimum
+   private static final double FLAKY_RATE = ALPHA;
+
+   private final long minMs;
+   private final long maxMs;
+
+   // the bits of the failure rate, a double, which starts out flaky so that the window is earned
+   private final AtomicLong failureRate = new AtomicLong(Double.doubleToRawLongBits(FLAKY_RATE));
+   private volatile long windowMs;
+
+   /**
+    * Construct a window.
+    *
+    * @param minMs the window when validations are failing
+    * @param maxMs the window when validations are succeeding, a window which is not above minMs is fixed
+    */
+   AliveBypassWindow(final long minMs, final long maxMs)
+   {
+      this.minMs = minMs;
+      this.maxMs = Math.max(minMs, maxMs);
+      this.windowMs = minMs;
+   }
+
+   /**
+    * Get the current window.
+    *
+    * @return the window in milliseconds
+    */
+   long getMillis()
+   {
+      return windowMs;
+   }
+
+   /**
+    * Get the narrowest the window can be.
+    *
+    * @return the minimum window in milliseconds
+    */
+   long getMinMillis()
+   {
+      return minMs;
+   }
+
+   /**
+    * Record the outcome of a validation.
+    *
+    * @param isAlive whether the connection was found alive
+    */
+   void recordValidation(final boolean isAlive)
+   {
+      if (maxMs == minMs) {
+         return;
+      }
+
+      long bits;
+      double rate;
+      do {
+         bits = failureRate.get();
+         rate = Double.longBitsToDouble(bits) * (1d - ALPHA) + (isAlive ? 0d : ALPHA);
+      } while (!failureRate.compareAndSet(bits, Double.doubleToRawLongBits(rate)));
+
+      windowMs = minMs + (long) ((maxMs - minMs) * Math.max(0d, 1d - rate / FLAKY_RATE));
+   }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedMillis;
+
+/**
+ * A circuit breaker around the creation of connections.  It opens after a number of consecutive creation
+ * failures, and while it is open no connection attempt is made and borrowers that find no idle connection
+ * fail at once.  After the open time has elapsed it lets a single attempt through, half-open; if the attempt
+ * succeeds the breaker closes, otherwise it opens again.
+ *
+ * @author Brett Wooldridge
+ */
+final class CircuitBreaker
+{
+   private static final int CLOSED = 0;
+   private static final int OPEN = 1;
+   private static final int HALF_OPEN = 2;
+
+   private final int failureThreshold;
+   private final long openTimeMs;
+
+   private final AtomicInteger state = new AtomicInteger(CLOSED);
+   private final AtomicInteger consecutiveFailures = new AtomicInteger();
+   private volatile long openedAt;
+
+   CircuitBreaker(final int failureThreshold, final long openTimeMs)
+   {
+      this.failureThreshold = failureThreshold;
+      this.openTimeMs = openTimeMs;
+   }
+
+   /**
+    * Ask whether a connection attempt may be made.  Once the open time has elapsed, exactly one caller is
+    * allowed through as the half-open probe.
+    *
+    * @return true if the attempt may be made
+    */
+   boolean tryAttempt()
+   {
+      final int current = state.get();
+      if (current == CLOSED) {
+         return true;
+      }
+
+      return current == OPEN && elapsedMillis(openedAt) >= openTimeMs && state.compareAndSet(OPEN, HALF_OPEN);
+   }
+
+   /**
+    * Determine whether borrowers should fail fast.  They should not once the open time has elapsed, so that
+    * they wait for the half-open probe.
+    *
+    * @return true if the breaker is open
+    */
+   boolean isOpen()
+   {
+      return state.get() == OPEN && elapsedMillis(openedAt) < openTimeMs;
+   }
+
+   /**
+    * Record a successful connection attempt.
+    *
+    * @return true if this closed the breaker
+    */
+   boolean recordSuccess()
+   {
+      consecutiveFailures.set(0);
+      return state.getAndSet(CLOSED) != CLOSED;
+   }
+
+   /**
+    * Record a failed connection attempt.
+    *
+    * @return true if this opened the breaker
+    */
+   boolean recordFailure()
+   {
+      if (consecutiveFailures.incrementAndGet() < failureThreshold && state.get() == CLOSED) {
+         return false;
+      }
+
+      final int current = state.get();
+      if (current != OPEN) {
+         openedAt = currentTime();
+         return state.compareAndSet(current, OPEN);
+      }
+
+      return false;
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A token bucket limiting the rate at which physical connections are opened, shared by every pool in the JVM so
+ * that after a database failover a process does not storm the database with logins.  The bucket holds up to
+ * {@code burst} tokens and is refilled at {@code rate} tokens per second; a connection attempt that finds the
+ * bucket empty waits for its token rather than failing.
+ * <p>
+ * The bucket is kept as the single theoretical arrival time of the generic cell rate algorithm, so that taking a
+ * token is one compare-and-set.
+ *
+ * @author Brett Wooldridge
+ */
+final class ConnectionRateLimiter
+{
+   /**
+    * The limiter shared by all pools, or null if {@code com.zaxxer.hikari.connectionCreationRate} is not set.
+    */
+   static final ConnectionRateLimiter SHARED = create(Double.parseDouble(System.getProperty("com.zaxxer.hikari.connectionCreationRate", "0")),
+                                                      Integer.getInteger("com.zaxxer.hikari.connectionCreationBurst", 1));
+
+   private final long intervalNanos;
+   private final long toleranceNanos;
+   private final AtomicLong arrivalNanos;
+
+   ConnectionRateLimiter(final double ratePerSecond, final int burst)
+   {
+      this.intervalNanos = Math.max(1L, (long) (SECONDS.toNanos(1) / ratePerSecond));
+      this.toleranceNanos = (Math.max(1, burst) - 1) * intervalNanos;
+      this.arrivalNanos = new AtomicLong(System.nanoTime());
+   }
+
+   static ConnectionRateLimiter create(final double ratePerSecond, final int burst)
+   {
+      return ratePerSecond > 0 ? new ConnectionRateLimiter(ratePerSecond, burst) : null;
+   }
+
+   /**
+    * Take a token, waiting for one if the bucket is empty.  Waiting ends early if the thread is interrupted, in
+    * which case the token is still consumed.
+    */
+   void acquire()
+   {
+      long waitNanos = reserve(System.nanoTime());
+      final long deadline = System.nanoTime() + waitNanos;
+      while (waitNanos > 0 && !Thread.currentThread().isInterrupted()) {
+         LockSupport.parkNanos(this, waitNanos);
+         waitNanos = deadline - System.nanoTime();
+      }
+   }
+
+   /**
+    * Take a token, which may not be available until some time from now.
+    *
+    * @param nowNanos the current {@link System#nanoTime()}
+    * @return the nanoseconds until the token is available, 0 if it is available now
+    */
+   long reserve(final long nowNanos)
+   {
+      for (;;) {
+         final long arrival = arrivalNanos.get();
+         final long start = arrival - nowNanos > 0 ? arrival : nowNanos;
+         if (arrivalNanos.compareAndSet(arrival, start + intervalNanos)) {
+            return Math.max(0L, start - nowNanos - toleranceNanos);
+         }
+      }
+   }
+}
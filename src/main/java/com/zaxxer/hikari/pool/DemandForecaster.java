@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+/**
+ * A forecast of the concurrent demand for connections, sampled by the house keeper.  The forecast is
+ * Holt's double exponential smoothing of the samples, the smoothed level plus its trend, so that it
+ * runs one sample ahead of a steadily rising demand.  Alongside it, a peak of the samples decays by
+ * {@link #PEAK_DECAY} per sample, so that capacity built up for a burst is released gradually rather
+ * than at the first quiet sample.
+ *
+ * @author Brett Wooldridge
+ */
+final class DemandForecaster
+{
+   static final double LEVEL_ALPHA = 0.5;
+   static final double TREND_BETA = 0.3;
+   static final double PEAK_DECAY = 0.9;
+
+   // only accessed by the house keeper
+   private boolean primed;
+   private double level;
+   private double trend;
+   private double peak;
+
+   private volatile double forecast;
+   private volatile double decayedPeak;
+
+   /**
+    * Add a sample of the concurrent demand.
+    *
+    * @param demand the number of active connections plus the number of waiting borrowers
+    */
+   void update(final int demand)
+   {
+      if (!primed) {
+         level = demand;
+         primed = true;
+      }
+      else {
+         final double previous = level;
+         level = LEVEL_ALPHA * demand + (1 - LEVEL_ALPHA) * (level + trend);
+         trend = TREND_BETA * (level - previous) + (1 - TREND_BETA) * trend;
+      }
+
+      peak = Math.max(demand, peak * PEAK_DECAY);
+
+      forecast = Math.max(0, level + trend);
+      decayedPeak = peak;
+   }
+
+   /**
+    * Get the forecast demand for the next sample.
+    *
+    * @return the forecast number of concurrently used connections
+    */
+   double getForecast()
+   {
+      return forecast;
+   }
+
+   /**
+    * Get the number of connections that should be kept open for the forecast demand.
+    *
+    * @return the larger of the forecast and the decaying peak, rounded to the nearest connection
+    */
+   int getTarget()
+   {
+      // rounded rather than ceiled, as the decaying peak only approaches zero
+      return (int) Math.round(Math.max(forecast, decayedPeak));
+   }
+}
@@ -18,6 +18,7 @@ package com.zaxxer.hikari.pool;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.zaxxer.hikari.ConnectionPriority;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariPoolMXBean;
 import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
@@ -36,29 +37,38 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLTransientConnectionException;
-import java.util.Collection;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
+import static com.zaxxer.hikari.ConnectionPriority.NORMAL;
 import static com.zaxxer.hikari.util.ClockSource.currentTime;
 import static com.zaxxer.hikari.util.ClockSource.elapsedDisplayString;
 import static com.zaxxer.hikari.util.ClockSource.elapsedMillis;
 import static com.zaxxer.hikari.util.ClockSource.plusMillis;
+import static com.zaxxer.hikari.util.ClockSource.toMillis;
 import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_IN_USE;
 import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_REMOVED;
 import static com.zaxxer.hikari.util.UtilityElf.createThreadPoolExecutor;
 import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
 import static com.zaxxer.hikari.util.UtilityElf.safeIsAssignableFrom;
-import static java.util.Collections.unmodifiableCollection;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -78,26 +88,58 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
 
    public volatile int poolState;
 
-   private final long aliveBypassWindowMs = Long.getLong("com.zaxxer.hikari.aliveBypassWindowMs", MILLISECONDS.toMillis(500));
    private final long housekeepingPeriodMs = Long.getLong("com.zaxxer.hikari.housekeeping.periodMs", SECONDS.toMillis(30));
+   private final long poolSizerPeriodMs = Long.getLong("com.zaxxer.hikari.adaptivePoolSize.periodMs", SECONDS.toMillis(1));
+   private final long lifecycleTickMs = Long.getLong("com.zaxxer.hikari.lifecycle.tickMs", MILLISECONDS.toMillis(50));
 
    private static final String EVICTED_CONNECTION_MESSAGE = "(connection was evicted)";
    private static final String DEAD_CONNECTION_MESSAGE = "(connection is dead)";
-
-   private final PoolEntryCreator poolEntryCreator = new PoolEntryCreator(null /*logging prefix*/);
-   private final PoolEntryCreator postFillPoolEntryCreator = new PoolEntryCreator("After adding ");
-   private final Collection<Runnable> addConnectionQueueReadOnlyView;
+   private static final long RETIREMENT_RETRY_MS = 250L;
+   private static final int LIFECYCLE_WHEEL_SIZE = 512;
+   private static final String MAX_LIFETIME_MESSAGE = "(connection has passed maxLifetime)";
+   private static final String LEAK_RECLAIMED_MESSAGE = "(connection was reclaimed as leaked)";
+
+   private final ConnectionCreator connectionCreator = new ConnectionCreator();
+   // connections requested but not yet being created, connections being created, and running creator tasks
+   private final AtomicInteger connectionsNeeded = new AtomicInteger();
+   private final AtomicInteger connectionsInFlight = new AtomicInteger();
+   private final AtomicInteger connectionsDeferred = new AtomicInteger();
+   private final AtomicInteger connectionCreators = new AtomicInteger();
+   private volatile int creationParallelism;
    private final ThreadPoolExecutor addConnectionExecutor;
    private final ThreadPoolExecutor closeConnectionExecutor;
+   // null unless validateAhead, runs the validations the validate ahead task selects
+   private final ThreadPoolExecutor validateAheadExecutor;
+   // null unless makeBeforeBreak, creates the replacements of retiring connections
+   private final ThreadPoolExecutor replacementExecutor;
+   // validates connections handed to asynchronous borrowers, so that the thread releasing them does not
+   private final ThreadPoolExecutor asyncBorrowExecutor;
 
    private final ConcurrentBag<PoolEntry> connectionBag;
 
    private final ProxyLeakTaskFactory leakTaskFactory;
    private final SuspendResumeLock suspendResumeLock;
 
+   // serializes shutdown, suspend/resume and fillPool; a ReentrantLock rather than a monitor so that
+   // virtual threads blocking inside these paths do not pin their carrier thread
+   private final ReentrantLock poolStateLock = new ReentrantLock();
+
    private final ScheduledExecutorService houseKeepingExecutorService;
    private ScheduledFuture<?> houseKeeperTask;
 
+   private final AdaptivePoolSizer poolSizer;
+   // null unless retirement is make-before-break
+   private final Semaphore retirementPermits;
+   // null unless retirement is rate-capped
+   private final RetirementScheduler retirementScheduler;
+   private final DemandForecaster demandForecaster;
+   // 0 unless the number of waiting borrowers is bounded
+   private final int maxWaiters;
+   private ScheduledFuture<?> poolSizerTask;
+   private ScheduledFuture<?> validateAheadTask;
+   // the maxLifetime and keepalive deadlines of the connections
+   final LifecycleWheel lifecycleWheel;
+
    /**
     * Construct a HikariPool with the specified configuration.
     *
@@ -107,10 +149,16 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    {
       super(config);
 
-      this.connectionBag = new ConcurrentBag<>(this);
+      this.connectionBag = new ConcurrentBag<>(this, config.getBagStripes(), config.getHighPriorityReserve(), PoolEntry.borrowOrder(config.getBorrowOrder()));
       this.suspendResumeLock = config.isAllowPoolSuspension() ? new SuspendResumeLock() : SuspendResumeLock.FAUX_LOCK;
 
       this.houseKeepingExecutorService = initializeHouseKeepingExecutorService();
+      this.poolSizer = config.isAdaptivePoolSize() ? new AdaptivePoolSizer(config) : null;
+      this.demandForecaster = config.isPredictiveMinimumIdle() ? new DemandForecaster() : null;
+      this.retirementPermits = config.isMakeBeforeBreak() ? new Semaphore(config.getMaxConcurrentRetirements()) : null;
+      this.retirementScheduler = config.getMaxRetirementsPerInterval() > 0 ? new RetirementScheduler(config.getMaxRetirementsPerInterval(), config.getRetirementInterval()) : null;
+      this.maxWaiters = config.getMaxWaiters();
+      this.lifecycleWheel = new LifecycleWheel(lifecycleTickMs, LIFECYCLE_WHEEL_SIZE, new LifecycleListener());
 
       checkFailFast();
 
@@ -128,26 +176,51 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       ThreadFactory threadFactory = config.getThreadFactory();
 
       final int maxPoolSize = config.getMaximumPoolSize();
-      LinkedBlockingQueue<Runnable> addConnectionQueue = new LinkedBlockingQueue<>(maxPoolSize);
-      this.addConnectionQueueReadOnlyView = unmodifiableCollection(addConnectionQueue);
-      this.addConnectionExecutor = createThreadPoolExecutor(addConnectionQueue, poolName + " connection adder", threadFactory, new ThreadPoolExecutor.DiscardOldestPolicy());
+      // runs only the connection creators, so never holds more than creationParallelism tasks
+      this.addConnectionExecutor = createThreadPoolExecutor(new LinkedBlockingQueue<>(), poolName + " connection adder", threadFactory, new ThreadPoolExecutor.DiscardPolicy());
+      setCreationParallelism(config.getConnectionCreationParallelism());
+      if (retirementPermits != null) {
+         // never holds more than maxConcurrentRetirements tasks, one per retirement permit
+         this.replacementExecutor = createThreadPoolExecutor(new LinkedBlockingQueue<>(), poolName + " connection replacer", threadFactory, new ThreadPoolExecutor.AbortPolicy());
+         replacementExecutor.setMaximumPoolSize(config.getMaxConcurrentRetirements());
+         replacementExecutor.setCorePoolSize(config.getMaxConcurrentRetirements());
+      }
+      else {
+         this.replacementExecutor = null;
+      }
       this.closeConnectionExecutor = createThreadPoolExecutor(maxPoolSize, poolName + " connection closer", threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
-
-      this.leakTaskFactory = new ProxyLeakTaskFactory(config.getLeakDetectionThreshold(), houseKeepingExecutorService);
-
-      this.houseKeeperTask = houseKeepingExecutorService.scheduleWithFixedDelay(new HouseKeeper(), 100L, housekeepingPeriodMs, MILLISECONDS);
+      // never holds more tasks than there are connections, each of which is borrowed until its task has run
+      this.asyncBorrowExecutor = createThreadPoolExecutor(new LinkedBlockingQueue<>(), poolName + " async borrower", threadFactory, new ThreadPoolExecutor.AbortPolicy());
+      asyncBorrowExecutor.setMaximumPoolSize(maxPoolSize);
+      asyncBorrowExecutor.setCorePoolSize(maxPoolSize);
+
+      this.leakTaskFactory = new ProxyLeakTaskFactory(config.getLeakDetectionThreshold(), config.getLeakReclaimThreshold(), houseKeepingExecutorService,
+                                                    () -> connectionBag.values(STATE_IN_USE), this::reclaimLeakedConnection);
+
+      // the house keeper also advances the lifecycle wheel, so that a pool schedules one periodic task for both
+      this.houseKeeperTask = houseKeepingExecutorService.scheduleWithFixedDelay(new HouseKeeper(), lifecycleTickMs, lifecycleTickMs, MILLISECONDS);
+      if (poolSizer != null) {
+         this.poolSizerTask = houseKeepingExecutorService.scheduleWithFixedDelay(new PoolSizerTask(), poolSizerPeriodMs, poolSizerPeriodMs, MILLISECONDS);
+      }
+      if (config.isValidateAhead()) {
+         // never holds more tasks than there are connections, each of which is reserved until its task has run
+         this.validateAheadExecutor = createThreadPoolExecutor(new LinkedBlockingQueue<>(), poolName + " connection validator", threadFactory, new ThreadPoolExecutor.AbortPolicy());
+         final long periodMs = Math.max(1L, aliveBypassWindow.getMinMillis() / 4);
+         this.validateAheadTask = houseKeepingExecutorService.scheduleWithFixedDelay(new ValidateAheadTask(periodMs), periodMs, periodMs, MILLISECONDS);
+      }
+      else {
+         this.validateAheadExecutor = null;
+      }
 
       if (Boolean.getBoolean("com.zaxxer.hikari.blockUntilFilled") && config.getInitializationFailTimeout() > 1) {
-         addConnectionExecutor.setMaximumPoolSize(Math.min(16, Runtime.getRuntime().availableProcessors()));
-         addConnectionExecutor.setCorePoolSize(Math.min(16, Runtime.getRuntime().availableProcessors()));
+         setCreationParallelism(Math.max(creationParallelism, Math.min(16, Runtime.getRuntime().availableProcessors())));
 
          final long startTime = currentTime();
          while (elapsedMillis(startTime) < config.getInitializationFailTimeout() && getTotalConnections() < config.getMinimumIdle()) {
             quietlySleep(MILLISECONDS.toMillis(100));
          }
 
-         addConnectionExecutor.setMaximumPoolSize(1);
-         addConnectionExecutor.setCorePoolSize(1);
+         setCreationParallelism(config.getConnectionCreationParallelism());
       }
    }
 
@@ -170,6 +243,54 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
     * @throws SQLException thrown if a timeout occurs trying to obtain a connection
     */
    public Connection getConnection(final long hardTimeout) throws SQLException
+   {
+      return getConnection(hardTimeout, NORMAL);
+   }
+
+   /**
+    * Get a connection from the pool at the specified priority, or timeout after connectionTimeout milliseconds.
+    *
+    * @param priority the priority of the borrower
+    * @return a java.sql.Connection instance
+    * @throws SQLException thrown if a timeout occurs trying to obtain a connection
+    */
+   public Connection getConnection(final ConnectionPriority priority) throws SQLException
+   {
+      return getConnection(connectionTimeout, priority);
+   }
+
+   /**
+    * Get a connection from the pool at the specified priority, or timeout after the specified number of
+    * milliseconds.  While the pool is exhausted, connections are handed to waiting borrowers of a higher
+    * priority first.
+    *
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @param priority the priority of the borrower
+    * @return a java.sql.Connection instance
+    * @throws SQLException thrown if a timeout occurs trying to obtain a connection
+    */
+   public Connection getConnection(final long hardTimeout, final ConnectionPriority priority) throws SQLException
+   {
+      return getConnection(hardTimeout, priority, null);
+   }
+
+   /**
+    * Get a connection from the pool for a borrower identified by a label, such as a tenant or schema key, or
+    * timeout after connectionTimeout milliseconds.  An idle connection last borrowed with the same label is
+    * preferred, and the catalog and schema a labelled borrower sets are not reset when the connection is
+    * closed, so a borrower given such a connection can skip re-initializing them.  They are reset when the
+    * connection is next borrowed without the same label.
+    *
+    * @param label the borrower's label
+    * @return a java.sql.Connection instance
+    * @throws SQLException thrown if a timeout occurs trying to obtain a connection
+    */
+   public Connection getLabelledConnection(final String label) throws SQLException
+   {
+      return getConnection(connectionTimeout, NORMAL, label);
+   }
+
+   private Connection getConnection(final long hardTimeout, final ConnectionPriority priority, final String label) throws SQLException
    {
       suspendResumeLock.acquire();
       final long startTime = currentTime();
@@ -177,16 +298,31 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       try {
          long timeout = hardTimeout;
          do {
-            PoolEntry poolEntry = connectionBag.borrow(timeout, MILLISECONDS);
+            // while the circuit breaker is open, only an idle connection will do
+            // ... and likewise while the waiter queue is full
+            final boolean failFast = circuitBreaker != null && circuitBreaker.isOpen();
+            final boolean shed = isWaiterQueueFull();
+            final Predicate<PoolEntry> preferred = label != null ? entry -> label.equals(entry.label) : null;
+            // a borrower that is turned away unless a connection is idle does not join the waiters
+            PoolEntry poolEntry = failFast || shed ? connectionBag.tryBorrow(priority, preferred) : connectionBag.borrow(timeout, MILLISECONDS, priority, preferred);
             if (poolEntry == null) {
+               if (failFast) {
+                  throw createCircuitOpenException();
+               }
+               if (shed) {
+                  throw createRejectedException();
+               }
                break; // We timed out... break and throw exception
             }
 
             final long now = currentTime();
-            if (poolEntry.isMarkedEvicted() || (elapsedMillis(poolEntry.lastAccessed, now) > aliveBypassWindowMs && !isConnectionAlive(poolEntry.connection))) {
+            if (poolEntry.isMarkedEvicted() || (isValidationDue(poolEntry, now) && !isConnectionAlive(poolEntry.connection))) {
                closeConnection(poolEntry, poolEntry.isMarkedEvicted() ? EVICTED_CONNECTION_MESSAGE : DEAD_CONNECTION_MESSAGE);
                timeout = hardTimeout - elapsedMillis(startTime);
             }
+            else if (!applyLabel(poolEntry, label)) {
+               timeout = hardTimeout - elapsedMillis(startTime);
+            }
             else {
                metricsTracker.recordBorrowStats(poolEntry, startTime);
                return poolEntry.createProxyConnection(leakTaskFactory.schedule(poolEntry), now);
@@ -205,14 +341,274 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
+   /**
+    * Get the specified number of connections from the pool, all or nothing, or timeout after the specified
+    * number of milliseconds.  Callers that each need several connections at once must use this method
+    * rather than borrowing them one at a time, which can deadlock when each caller holds part of a set.
+    *
+    * @param count the number of connections, no more than the effective maximum pool size less highPriorityReserve
+    * @param hardTimeout the maximum time to wait for the connections
+    * @return a list of <code>count</code> java.sql.Connection instances
+    * @throws SQLException thrown if a timeout occurs, or the pool cannot currently lend that many connections
+    */
+   public List<Connection> getConnections(final int count, final long hardTimeout) throws SQLException
+   {
+      // the connections are borrowed at NORMAL priority, so they can never include the reserved ones
+      final int limit = Math.min(config.getMaximumPoolSize(), getMaximumPoolSize()) - config.getHighPriorityReserve();
+      if (count > limit) {
+         throw new SQLException(poolName + " - Cannot get " + count + " connections from a pool that can lend at most " + limit
+                                   + " at once (maximumPoolSize " + config.getMaximumPoolSize() + ", effective maximum " + getMaximumPoolSize()
+                                   + ", highPriorityReserve " + config.getHighPriorityReserve() + ")");
+      }
+
+      suspendResumeLock.acquire();
+      final long startTime = currentTime();
+
+      try {
+         final List<PoolEntry> poolEntries = connectionBag.borrow(count, hardTimeout, MILLISECONDS, poolEntry -> {
+            if (poolEntry.isMarkedEvicted() || (isValidationDue(poolEntry, currentTime()) && !isConnectionAlive(poolEntry.connection))) {
+               closeConnection(poolEntry, poolEntry.isMarkedEvicted() ? EVICTED_CONNECTION_MESSAGE : DEAD_CONNECTION_MESSAGE);
+               return false;
+            }
+            return applyLabel(poolEntry, null);
+         });
+
+         if (poolEntries == null) {
+            metricsTracker.recordBorrowTimeoutStats(startTime);
+            throw createTimeoutException(startTime);
+         }
+
+         final long now = currentTime();
+         final List<Connection> connections = new ArrayList<>(count);
+         for (PoolEntry poolEntry : poolEntries) {
+            metricsTracker.recordBorrowStats(poolEntry, startTime);
+            connections.add(poolEntry.createProxyConnection(leakTaskFactory.schedule(poolEntry), now));
+         }
+         return connections;
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new SQLException(poolName + " - Interrupted during connection acquisition", e);
+      }
+      finally {
+         suspendResumeLock.release();
+      }
+   }
+
+   /**
+    * Get a connection from the pool asynchronously, or timeout after connectionTimeout milliseconds.
+    *
+    * @return a future completed with a java.sql.Connection instance
+    * @see #getConnectionAsync(long)
+    */
+   public CompletableFuture<Connection> getConnectionAsync()
+   {
+      return getConnectionAsync(connectionTimeout);
+   }
+
+   /**
+    * Get a connection from the pool asynchronously, or timeout after the specified number of milliseconds.
+    * No thread is blocked while waiting; when no connection is idle the returned future is completed by
+    * one of the pool's async borrower threads once the connection next closed (or added to the pool) has
+    * been validated, so dependent stages that are not *Async run on that thread and should be short.  A timeout completes the future
+    * exceptionally with the same SQLTransientConnectionException, and is recorded with the same metrics,
+    * as {@link #getConnection(long)}.  Unlike getConnection(), which blocks while the pool is suspended,
+    * the future fails immediately if the pool is suspended.
+    *
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @return a future completed with a java.sql.Connection instance
+    */
+   public CompletableFuture<Connection> getConnectionAsync(final long hardTimeout)
+   {
+      final CompletableFuture<Connection> connectionFuture = new CompletableFuture<>();
+      if (poolState == POOL_SUSPENDED) {
+         connectionFuture.completeExceptionally(new SQLTransientException(poolName + " - The pool is currently suspended"));
+         return connectionFuture;
+      }
+
+      final long startTime = currentTime();
+      if (circuitBreaker != null && circuitBreaker.isOpen()) {
+         // only an idle connection will do
+         if (!borrowIdle(connectionFuture, startTime)) {
+            connectionFuture.completeExceptionally(createCircuitOpenException());
+         }
+         return connectionFuture;
+      }
+
+      if (isWaiterQueueFull()) {
+         if (!borrowIdle(connectionFuture, startTime)) {
+            connectionFuture.completeExceptionally(createRejectedException());
+         }
+         return connectionFuture;
+      }
+
+      final ScheduledFuture<?> timeoutTask = houseKeepingExecutorService.schedule(() -> {
+         if (!connectionFuture.isDone()) {
+            metricsTracker.recordBorrowTimeoutStats(startTime);
+            connectionFuture.completeExceptionally(createTimeoutException(startTime));
+         }
+      }, hardTimeout, MILLISECONDS);
+      connectionFuture.whenComplete((connection, throwable) -> timeoutTask.cancel(false));
+
+      try {
+         borrowAsync(connectionFuture, startTime);
+      }
+      catch (Throwable t) {
+         connectionFuture.completeExceptionally(t);
+      }
+      return connectionFuture;
+   }
+
+   /**
+    * Borrow a PoolEntry for an asynchronous request, retrying if the entry is evicted or dead.
+    *
+    * @param connectionFuture the future to complete with a proxy connection
+    * @param startTime the time the request began
+    */
+   private void borrowAsync(final CompletableFuture<Connection> connectionFuture, final long startTime)
+   {
+      final CompletableFuture<PoolEntry> entryFuture = connectionBag.borrowAsync();
+      if (entryFuture.isDone()) {
+         // an idle entry, handed over on the borrower's own thread
+         entryFuture.thenAccept(poolEntry -> handOverAsync(poolEntry, connectionFuture, startTime));
+         return;
+      }
+
+      // withdraw from the bag's queue when the request times out
+      connectionFuture.whenComplete((connection, throwable) -> entryFuture.completeExceptionally(throwable != null ? throwable : new CancellationException()));
+
+      // the entry arrives on the thread releasing or adding it, which must not pay for validating it
+      entryFuture.thenAccept(poolEntry -> {
+         try {
+            asyncBorrowExecutor.execute(() -> handOverAsync(poolEntry, connectionFuture, startTime));
+         }
+         catch (RejectedExecutionException e) {
+            // the pool is shutting down
+            handOverAsync(poolEntry, connectionFuture, startTime);
+         }
+      });
+   }
+
+   /**
+    * Hand a PoolEntry borrowed for an asynchronous request to that request, retrying if the entry is evicted or
+    * dead.  Any failure completes the request exceptionally rather than leaving it to the timeout.
+    *
+    * @param poolEntry the borrowed entry
+    * @param connectionFuture the future to complete with a proxy connection
+    * @param startTime the time the request began
+    */
+   private void handOverAsync(final PoolEntry poolEntry, final CompletableFuture<Connection> connectionFuture, final long startTime)
+   {
+      // cleared once the entry has been closed or returned to the bag, and with it this request's claim on it
+      boolean isHeld = true;
+      final Connection connection;
+      try {
+         final long now = currentTime();
+         if (poolEntry.isMarkedEvicted() || (isValidationDue(poolEntry, now) && !isConnectionAlive(poolEntry.connection))) {
+            isHeld = false;
+            closeConnection(poolEntry, poolEntry.isMarkedEvicted() ? EVICTED_CONNECTION_MESSAGE : DEAD_CONNECTION_MESSAGE);
+            if (!connectionFuture.isDone()) {
+               borrowAsync(connectionFuture, startTime);
+            }
+            return;
+         }
+         else if (connectionFuture.isDone()) {
+            isHeld = false;
+            connectionBag.requite(poolEntry);
+            return;
+         }
+         else if (!applyLabel(poolEntry, null)) {
+            isHeld = false;
+            if (!connectionFuture.isDone()) {
+               borrowAsync(connectionFuture, startTime);
+            }
+            return;
+         }
+
+         metricsTracker.recordBorrowStats(poolEntry, startTime);
+         connection = poolEntry.createProxyConnection(leakTaskFactory.schedule(poolEntry), now);
+      }
+      catch (Throwable t) {
+         if (isHeld) {
+            closeConnection(poolEntry, "(connection could not be handed to an asynchronous borrower)");
+         }
+         connectionFuture.completeExceptionally(t);
+         return;
+      }
+
+      if (!connectionFuture.complete(connection)) {
+         // timed out in the meantime
+         quietlyCloseProxy(connection);
+      }
+   }
+
+   /**
+    * Complete an asynchronous request with an idle connection, if there is one, without waiting for one.
+    *
+    * @param connectionFuture the future to complete with a proxy connection
+    * @param startTime the time the request began
+    * @return true if the future was completed
+    */
+   private boolean borrowIdle(final CompletableFuture<Connection> connectionFuture, final long startTime)
+   {
+      for (PoolEntry poolEntry = connectionBag.tryBorrow(NORMAL, null); poolEntry != null; poolEntry = connectionBag.tryBorrow(NORMAL, null)) {
+         final long now = currentTime();
+         if (poolEntry.isMarkedEvicted() || (isValidationDue(poolEntry, now) && !isConnectionAlive(poolEntry.connection))) {
+            closeConnection(poolEntry, poolEntry.isMarkedEvicted() ? EVICTED_CONNECTION_MESSAGE : DEAD_CONNECTION_MESSAGE);
+         }
+         else if (applyLabel(poolEntry, null)) {
+            metricsTracker.recordBorrowStats(poolEntry, startTime);
+            connectionFuture.complete(poolEntry.createProxyConnection(leakTaskFactory.schedule(poolEntry), now));
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Assign the borrower's label to a borrowed entry, recording label affinity for a labelled borrower.
+    *
+    * @param poolEntry the borrowed entry
+    * @param label the borrower's label, or null
+    * @return false if the session state preserved for another label could not be reset, in which case the
+    *         connection has been closed
+    */
+   private boolean applyLabel(final PoolEntry poolEntry, final String label)
+   {
+      if (label != null) {
+         metricsTracker.recordLabelAffinity(label.equals(poolEntry.label));
+      }
+
+      try {
+         poolEntry.applyLabel(label);
+         return true;
+      }
+      catch (SQLException e) {
+         closeConnection(poolEntry, "(connection state could not be reset)");
+         return false;
+      }
+   }
+
+   private static void quietlyCloseProxy(final Connection connection)
+   {
+      try {
+         connection.close();
+      }
+      catch (SQLException e) {
+         // the underlying connection is evicted by ProxyConnection on failure
+      }
+   }
+
    /**
     * Shutdown the pool, closing all idle connections and aborting or closing
     * active connections.
     *
     * @throws InterruptedException thrown if the thread is interrupted during shutdown
     */
-   public synchronized void shutdown() throws InterruptedException
+   public void shutdown() throws InterruptedException
    {
+      poolStateLock.lock();
       try {
          poolState = POOL_SHUTDOWN;
 
@@ -227,11 +623,41 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             houseKeeperTask = null;
          }
 
+         if (leakTaskFactory != null) {
+            leakTaskFactory.close();
+         }
+
+         if (poolSizerTask != null) {
+            poolSizerTask.cancel(false);
+            poolSizerTask = null;
+         }
+
+         if (validateAheadTask != null) {
+            validateAheadTask.cancel(false);
+            validateAheadTask = null;
+         }
+
+         if (validateAheadExecutor != null) {
+            // the pending validations unreserve their connections, so that they can be evicted below
+            validateAheadExecutor.shutdown();
+            validateAheadExecutor.awaitTermination(10L, SECONDS);
+         }
+
+         // the pending hand-overs complete their borrowers, whose connections are then aborted below like any other
+         asyncBorrowExecutor.shutdown();
+         asyncBorrowExecutor.awaitTermination(10L, SECONDS);
+
          softEvictConnections();
 
          addConnectionExecutor.shutdown();
          addConnectionExecutor.awaitTermination(getLoginTimeout(), SECONDS);
 
+         if (replacementExecutor != null) {
+            // the pending replacements are not created once the pool is shutting down, but still retire their connections
+            replacementExecutor.shutdown();
+            replacementExecutor.awaitTermination(getLoginTimeout(), SECONDS);
+         }
+
          destroyHouseKeepingExecutorService();
 
          connectionBag.close();
@@ -255,9 +681,14 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
          closeConnectionExecutor.awaitTermination(10L, SECONDS);
       }
       finally {
-         logPoolState("After shutdown ");
-         handleMBeans(this, false);
-         metricsTracker.close();
+         try {
+            logPoolState("After shutdown ");
+            handleMBeans(this, false);
+            metricsTracker.close();
+         }
+         finally {
+            poolStateLock.unlock();
+         }
       }
    }
 
@@ -269,10 +700,14 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    public void evictConnection(Connection connection)
    {
       ProxyConnection proxyConnection = (ProxyConnection) connection;
-      proxyConnection.cancelLeakTask();
-
       try {
-         softEvictConnection(proxyConnection.getPoolEntry(), "(connection evicted by user)", !connection.isClosed() /* owner */);
+         final boolean isOpen = !connection.isClosed();
+         // the leak task is reused by every borrow of the entry, so only an open connection may end the borrow it tracks
+         if (isOpen && !proxyConnection.cancelLeakTask()) {
+            return; // already reclaimed as leaked
+         }
+
+         softEvictConnection(proxyConnection.getPoolEntry(), "(connection evicted by user)", isOpen /* owner */);
       }
       catch (SQLException e) {
          // unreachable in HikariCP, but we're still forced to catch it
@@ -305,12 +740,15 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
     */
    public void setMetricsTrackerFactory(MetricsTrackerFactory metricsTrackerFactory)
    {
+      final IMetricsTrackerDelegate delegate;
       if (metricsTrackerFactory != null) {
-         this.metricsTracker = new MetricsTrackerDelegate(metricsTrackerFactory.create(config.getPoolName(), getPoolStats()));
+         delegate = new MetricsTrackerDelegate(metricsTrackerFactory.create(config.getPoolName(), getPoolStats()));
       }
       else {
-         this.metricsTracker = new NopMetricsTrackerDelegate();
+         delegate = new NopMetricsTrackerDelegate();
       }
+
+      this.metricsTracker = poolSizer != null ? poolSizer.wrap(delegate) : delegate;
    }
 
    /**
@@ -334,12 +772,12 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    @Override
    public void addBagItem(final int waiting)
    {
-      final boolean shouldAdd = waiting - addConnectionQueueReadOnlyView.size() >= 0; // Yes, >= is intentional.
+      final boolean shouldAdd = waiting - connectionsNeeded.get() >= 0; // Yes, >= is intentional.
       if (shouldAdd) {
-         addConnectionExecutor.submit(poolEntryCreator);
+         requestConnections(1);
       }
       else {
-         logger.debug("{} - Add connection elided, waiting {}, queue {}", poolName, waiting, addConnectionQueueReadOnlyView.size());
+         logger.debug("{} - Add connection elided, waiting {}, needed {}", poolName, waiting, connectionsNeeded.get());
       }
    }
 
@@ -375,34 +813,68 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       return connectionBag.getWaitingThreadCount();
    }
 
+   /** {@inheritDoc} */
+   @Override
+   public double getConnectionDemandForecast()
+   {
+      return demandForecaster != null ? demandForecaster.getForecast() : 0;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public int getEffectiveMinimumConnections()
+   {
+      final int forecast = demandForecaster != null ? demandForecaster.getTarget() : 0;
+      return Math.min(getMaximumPoolSize(), Math.max(config.getMinimumIdle(), forecast));
+   }
+
    /** {@inheritDoc} */
    @Override
    public void softEvictConnections()
    {
-      connectionBag.values().forEach(poolEntry -> softEvictConnection(poolEntry, "(connection evicted)", false /* not owner */));
+      if (retirementScheduler != null && poolState == POOL_NORMAL) {
+         // retire them at the capped rate, leaving them in service until then
+         connectionBag.values().forEach(poolEntry -> scheduleRetirement(poolEntry, 0, true, "(connection evicted)"));
+      }
+      else {
+         connectionBag.values().forEach(poolEntry -> softEvictConnection(poolEntry, "(connection evicted)", false /* not owner */));
+      }
    }
 
    /** {@inheritDoc} */
    @Override
-   public synchronized void suspendPool()
+   public void suspendPool()
    {
       if (suspendResumeLock == SuspendResumeLock.FAUX_LOCK) {
          throw new IllegalStateException(poolName + " - is not suspendable");
       }
-      else if (poolState != POOL_SUSPENDED) {
-         suspendResumeLock.suspend();
-         poolState = POOL_SUSPENDED;
+
+      poolStateLock.lock();
+      try {
+         if (poolState != POOL_SUSPENDED) {
+            suspendResumeLock.suspend();
+            poolState = POOL_SUSPENDED;
+         }
+      }
+      finally {
+         poolStateLock.unlock();
       }
    }
 
    /** {@inheritDoc} */
    @Override
-   public synchronized void resumePool()
+   public void resumePool()
    {
-      if (poolState == POOL_SUSPENDED) {
-         poolState = POOL_NORMAL;
-         fillPool();
-         suspendResumeLock.resume();
+      poolStateLock.lock();
+      try {
+         if (poolState == POOL_SUSPENDED) {
+            poolState = POOL_NORMAL;
+            fillPool();
+            suspendResumeLock.resume();
+         }
+      }
+      finally {
+         poolStateLock.unlock();
       }
    }
 
@@ -446,6 +918,10 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    void closeConnection(final PoolEntry poolEntry, final String closureReason)
    {
       if (connectionBag.remove(poolEntry)) {
+         if (retirementScheduler != null) {
+            retirementScheduler.release(poolEntry.retireAt);
+         }
+
          final Connection connection = poolEntry.close();
          closeConnectionExecutor.execute(() -> {
             quietlyCloseConnection(connection, closureReason);
@@ -456,6 +932,48 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
+   /**
+    * Reclaim a connection that has been out of the pool for longer than leakReclaimThreshold.  The connection held
+    * by the application is closed, so that later use of it throws, and the physical connection is aborted and
+    * removed from the pool, so that it is replaced.
+    *
+    * @param poolEntry the leaked entry
+    * @param leakTask the leak detection state of the borrow, claimed for reclamation by the caller
+    */
+   private void reclaimLeakedConnection(final PoolEntry poolEntry, final ProxyLeakTask leakTask)
+   {
+      final ProxyConnection proxyConnection = leakTask.getProxyConnection();
+      if (proxyConnection != null) {
+         proxyConnection.markReclaimed();
+      }
+
+      final String callSite = leakTask.getCallSite();
+      logger.warn("{} - Reclaimed connection {} leaked by {}, it was out of the pool for longer than leakReclaimThreshold ({}ms).",
+                  poolName, poolEntry.connection, callSite, config.getLeakReclaimThreshold());
+      metricsTracker.recordLeakReclaimed(callSite);
+
+      if (connectionBag.remove(poolEntry)) {
+         if (retirementScheduler != null) {
+            retirementScheduler.release(poolEntry.retireAt);
+         }
+
+         final Connection connection = poolEntry.close();
+         closeConnectionExecutor.execute(() -> {
+            try {
+               // the leaker may be blocked in a call on the connection, which close() could wait on
+               connection.abort(closeConnectionExecutor);
+            }
+            catch (Throwable e) {
+               quietlyCloseConnection(connection, LEAK_RECLAIMED_MESSAGE);
+            }
+
+            if (poolState == POOL_NORMAL) {
+               fillPool();
+            }
+         });
+      }
+   }
+
    int[] getPoolStateCounts()
    {
       return connectionBag.getStateCounts();
@@ -467,8 +985,8 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    // ***********************************************************************
 
    /**
-    * Creating new poolEntry.  If maxLifetime is configured, create a future End-of-life task with 2.5% variance from
-    * the maxLifetime time to ensure there is no massive die-off of Connections in the pool.
+    * Creating new poolEntry.  If maxLifetime is configured, set an end of life on the lifecycle wheel with 2.5% variance
+    * from the maxLifetime time to ensure there is no massive die-off of Connections in the pool.
     */
    private PoolEntry createPoolEntry()
    {
@@ -476,11 +994,14 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
          final PoolEntry poolEntry = newPoolEntry();
 
          final long maxLifetime = config.getMaxLifetime();
-         if (maxLifetime > 0) {
+         if (maxLifetime > 0 && retirementScheduler != null) {
+            scheduleRetirement(poolEntry, maxLifetime, false, MAX_LIFETIME_MESSAGE);
+         }
+         else if (maxLifetime > 0) {
             // variance up to 2.5% of the maxlifetime
             final long variance = maxLifetime > 10_000 ? ThreadLocalRandom.current().nextLong( maxLifetime / 40 ) : 0;
             final long lifetime = maxLifetime - variance;
-            poolEntry.setFutureEol(houseKeepingExecutorService.schedule(new MaxLifetimeTask(poolEntry), lifetime, MILLISECONDS));
+            lifecycleWheel.scheduleEndOfLife(poolEntry, lifetime, MAX_LIFETIME_MESSAGE);
          }
 
          final long keepaliveTime = config.getKeepaliveTime();
@@ -488,7 +1009,7 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             // variance up to 10% of the heartbeat time
             final long variance = ThreadLocalRandom.current().nextLong(keepaliveTime / 10);
             final long heartbeatTime = keepaliveTime - variance;
-            poolEntry.setKeepalive(houseKeepingExecutorService.scheduleWithFixedDelay(new KeepaliveTask(poolEntry), heartbeatTime, heartbeatTime, MILLISECONDS));
+            lifecycleWheel.scheduleKeepalive(poolEntry, heartbeatTime);
          }
 
          return poolEntry;
@@ -509,16 +1030,136 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    }
 
    /**
-    * Fill pool up from current idle connections (as they are perceived at the point of execution) to minimumIdle connections.
+    * Schedule the retirement of a connection in a slot assigned by the retirement scheduler.
+    *
+    * @param poolEntry the connection to retire
+    * @param delayMs the time in milliseconds from now the connection is due to retire
+    * @param notEarlier true if the connection may not retire before it is due
+    * @param reason the reason to log when the connection is closed
     */
-   private synchronized void fillPool()
+   private void scheduleRetirement(final PoolEntry poolEntry, final long delayMs, final boolean notEarlier, final String reason)
    {
-      final int connectionsToAdd = Math.min(config.getMaximumPoolSize() - getTotalConnections(), config.getMinimumIdle() - getIdleConnections())
-                                   - addConnectionQueueReadOnlyView.size();
-      if (connectionsToAdd <= 0) logger.debug("{} - Fill pool skipped, pool is at sufficient level.", poolName);
+      final long now = toMillis(currentTime());
+      retirementScheduler.release(poolEntry.retireAt);
+      poolEntry.retireAt = retirementScheduler.assign(now, now + delayMs, notEarlier);
+
+      final long delay = poolEntry.retireAt - now;
+      metricsTracker.recordRetirementShift(delay - delayMs);
+      lifecycleWheel.scheduleEndOfLife(poolEntry, delay, reason);
+   }
+
+   /**
+    * Determine whether a borrowed connection must be validated before it is handed out, because it has been
+    * neither used nor validated ahead within the alive bypass window.
+    *
+    * @param poolEntry the borrowed entry
+    * @param now the current time
+    * @return true if the connection must be validated
+    */
+   private boolean isValidationDue(final PoolEntry poolEntry, final long now)
+   {
+      final long lastChecked = poolEntry.lastValidated - poolEntry.lastAccessed > 0 ? poolEntry.lastValidated : poolEntry.lastAccessed;
+      return elapsedMillis(lastChecked, now) > aliveBypassWindow.getMillis();
+   }
 
-      for (int i = 0; i < connectionsToAdd; i++) {
-         addConnectionExecutor.submit((i < connectionsToAdd - 1) ? poolEntryCreator : postFillPoolEntryCreator);
+   /**
+    * Get the effective maximum pool size, which is maximumPoolSize unless the pool size is adaptive.
+    *
+    * @return the maximum number of connections the pool may currently hold
+    */
+   private int getMaximumPoolSize()
+   {
+      return poolSizer != null ? poolSizer.getLimit() : config.getMaximumPoolSize();
+   }
+
+   /**
+    * Close idle connections in excess of the effective maximum pool size, which may have been lowered.
+    */
+   private void retireExcessConnections()
+   {
+      int excess = getTotalConnections() - getMaximumPoolSize();
+      for (PoolEntry entry : connectionBag.values(STATE_NOT_IN_USE)) {
+         if (excess <= 0) {
+            break;
+         }
+
+         if (connectionBag.reserve(entry)) {
+            closeConnection(entry, "(connection exceeds maximum pool size)");
+            excess--;
+         }
+      }
+   }
+
+   /**
+    * Request the creation of connections.  Requests are coalesced into a single count of the connections needed,
+    * which up to {@code creationParallelism} creator tasks work off.
+    *
+    * @param count the number of connections to add to the count
+    */
+   private void requestConnections(final int count)
+   {
+      connectionsNeeded.addAndGet(count);
+      startConnectionCreators();
+   }
+
+   /**
+    * Start creator tasks while there are fewer than both the creation parallelism and the connections needed.
+    */
+   private void startConnectionCreators()
+   {
+      while (poolState == POOL_NORMAL) {
+         final int creators = connectionCreators.get();
+         if (creators >= creationParallelism || creators >= connectionsNeeded.get()) {
+            return;
+         }
+
+         if (connectionCreators.compareAndSet(creators, creators + 1)) {
+            addConnectionExecutor.execute(connectionCreator);
+         }
+      }
+   }
+
+   /**
+    * Set the maximum number of concurrent connection attempts.
+    *
+    * @param parallelism the maximum number of creator tasks
+    */
+   private void setCreationParallelism(final int parallelism)
+   {
+      if (parallelism > addConnectionExecutor.getMaximumPoolSize()) {
+         addConnectionExecutor.setMaximumPoolSize(parallelism);
+         addConnectionExecutor.setCorePoolSize(parallelism);
+      }
+      else {
+         addConnectionExecutor.setCorePoolSize(parallelism);
+         addConnectionExecutor.setMaximumPoolSize(parallelism);
+      }
+
+      this.creationParallelism = parallelism;
+      startConnectionCreators();
+   }
+
+   /**
+    * Fill pool up from current idle connections (as they are perceived at the point of execution) to minimumIdle connections,
+    * and from current total connections to the effective minimum connections.
+    */
+   private void fillPool()
+   {
+      poolStateLock.lock();
+      try {
+         final int totalConnections = getTotalConnections();
+         final int connectionsToAdd = Math.min(getMaximumPoolSize() - totalConnections,
+                                               Math.max(config.getMinimumIdle() - getIdleConnections(), getEffectiveMinimumConnections() - totalConnections))
+                                      - connectionsNeeded.get() - connectionsInFlight.get();
+         if (connectionsToAdd <= 0) {
+            logger.debug("{} - Fill pool skipped, pool is at sufficient level.", poolName);
+         }
+         else {
+            requestConnections(connectionsToAdd);
+         }
+      }
+      finally {
+         poolStateLock.unlock();
       }
    }
 
@@ -688,12 +1329,50 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       logPoolState("Timeout failure ");
       metricsTracker.recordConnectionTimeout();
 
+      return createUnavailableException(poolName + " - Connection is not available, request timed out after " + elapsedMillis(startTime) + "ms.");
+   }
+
+   /**
+    * Create an exception for a borrower that found no idle connection while the circuit breaker is open.
+    *
+    * @return the exception to throw, with the last connection failure as its cause
+    */
+   private SQLException createCircuitOpenException()
+   {
+      return createUnavailableException(poolName + " - Connection is not available, connection attempts are failing and the circuit breaker is open.");
+   }
+
+   /**
+    * Is the number of threads waiting for a connection at the configured maximum?  The count is read without
+    * locking, so a burst of borrowers may overshoot the maximum by a few.
+    *
+    * @return true if a borrower that finds no idle connection should be rejected
+    */
+   private boolean isWaiterQueueFull()
+   {
+      return maxWaiters > 0 && connectionBag.getWaitingThreadCount() >= maxWaiters;
+   }
+
+   /**
+    * Create an exception for a borrower that found no idle connection while the waiter queue is full, and record
+    * the rejection in the metrics tracker.
+    *
+    * @return the exception to throw
+    */
+   private SQLException createRejectedException()
+   {
+      metricsTracker.recordBorrowRejected();
+      return new ConnectionRejectedException(poolName + " - Connection is not available, " + maxWaiters + " threads are already waiting.");
+   }
+
+   private SQLException createUnavailableException(final String message)
+   {
       String sqlState = null;
       final Throwable originalException = getLastConnectionFailure();
       if (originalException instanceof SQLException) {
          sqlState = ((SQLException) originalException).getSQLState();
       }
-      final SQLException connectionException = new SQLTransientConnectionException(poolName + " - Connection is not available, request timed out after " + elapsedMillis(startTime) + "ms.", sqlState, originalException);
+      final SQLException connectionException = new SQLTransientConnectionException(message, sqlState, originalException);
       if (originalException instanceof SQLException) {
          connectionException.setNextException((SQLException) originalException);
       }
@@ -707,64 +1386,168 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    // ***********************************************************************
 
    /**
-    * Creating and adding poolEntries (connections) to the pool.
+    * Creating and adding poolEntries (connections) to the pool.  Each creator task claims one needed connection
+    * at a time, until none are needed.
     */
-   private final class PoolEntryCreator implements Callable<Boolean>
+   private final class ConnectionCreator implements Runnable
    {
-      private final String loggingPrefix;
+      @Override
+      public void run()
+      {
+         do {
+            while (poolState == POOL_NORMAL && claimConnectionNeeded()) {
+               createConnection();
+            }
+
+            if (poolState != POOL_NORMAL) {
+               // the pool is suspended or shutdown, the need is re-established by fillPool() or borrowers on resume
+               connectionsNeeded.set(0);
+               connectionsDeferred.set(0);
+            }
 
-      PoolEntryCreator(String loggingPrefix)
+            connectionCreators.decrementAndGet();
+            // a request may have arrived after the last claim, while this task still counted as running
+         } while (connectionsNeeded.get() > 0 && restart());
+      }
+
+      private boolean claimConnectionNeeded()
       {
-         this.loggingPrefix = loggingPrefix;
+         for (;;) {
+            final int needed = connectionsNeeded.get();
+            if (needed <= 0) {
+               return false;
+            }
+
+            if (connectionsNeeded.compareAndSet(needed, needed - 1)) {
+               return true;
+            }
+         }
       }
 
-      @Override
-      public Boolean call()
+      private boolean restart()
+      {
+         final int creators = connectionCreators.get();
+         return poolState == POOL_NORMAL && creators < creationParallelism && connectionCreators.compareAndSet(creators, creators + 1);
+      }
+
+      /**
+       * Create one connection, retrying with backoff on failure, unless the need for it disappears.
+       */
+      private void createConnection()
       {
          long sleepBackoff = 250L;
-         while (poolState == POOL_NORMAL && shouldCreateAnotherConnection()) {
-            final PoolEntry poolEntry = createPoolEntry();
+         while (poolState == POOL_NORMAL && reserveConnectionInFlight()) {
+            final PoolEntry poolEntry;
+            try {
+               poolEntry = createPoolEntry();
+               if (poolEntry != null) {
+                  connectionBag.add(poolEntry);
+                  logger.debug("{} - Added connection {}", poolName, poolEntry.connection);
+               }
+            }
+            finally {
+               connectionsInFlight.decrementAndGet();
+               resumeDeferred();
+            }
+
             if (poolEntry != null) {
-               connectionBag.add(poolEntry);
-               logger.debug("{} - Added connection {}", poolName, poolEntry.connection);
-               if (loggingPrefix != null) {
-                  logPoolState(loggingPrefix);
+               if (connectionsNeeded.get() == 0 && connectionsInFlight.get() == 0) {
+                  logPoolState("After adding ");
                }
-               return Boolean.TRUE;
+               return;
             }
 
-            // failed to get connection from db, sleep and retry
-            if (loggingPrefix != null) logger.debug("{} - Connection add failed, sleeping with backoff: {}ms", poolName, sleepBackoff);
-            quietlySleep(sleepBackoff);
+            if (circuitBreaker != null && circuitBreaker.isOpen()) {
+               // borrowers fail fast meanwhile, and the next one after the open time makes the half-open probe
+               return;
+            }
+
+            // failed to get connection from db, sleep and retry; the jitter keeps pools that failed together from retrying together
+            final long sleepJittered = sleepBackoff / 2 + ThreadLocalRandom.current().nextLong(sleepBackoff / 2 + 1);
+            logger.debug("{} - Connection add failed, sleeping with backoff: {}ms", poolName, sleepJittered);
+            quietlySleep(sleepJittered);
             sleepBackoff = Math.min(SECONDS.toMillis(10), Math.min(connectionTimeout, (long) (sleepBackoff * 1.5)));
          }
 
-         // Pool is suspended or shutdown or at max size
-         return Boolean.FALSE;
+         // Pool is suspended or shutdown or at max size, or the need has disappeared
+         if (poolState == POOL_NORMAL && connectionsInFlight.get() > 0) {
+            // ...or appears to have, because a connection being added is counted both in the bag and in flight
+            connectionsDeferred.incrementAndGet();
+            if (connectionsInFlight.get() == 0) {
+               resumeDeferred();
+            }
+         }
+      }
+
+      /**
+       * Return the connections deferred while others were in flight to the count of connections needed, to be
+       * judged again against accurate counters.
+       */
+      private void resumeDeferred()
+      {
+         final int deferred = connectionsDeferred.getAndSet(0);
+         if (deferred > 0) {
+            connectionsNeeded.addAndGet(deferred);
+         }
+      }
+
+      private boolean reserveConnectionInFlight()
+      {
+         for (;;) {
+            final int inFlight = connectionsInFlight.get();
+            if (!shouldCreateAnotherConnection(inFlight)) {
+               return false;
+            }
+
+            if (connectionsInFlight.compareAndSet(inFlight, inFlight + 1)) {
+               return true;
+            }
+         }
       }
 
       /**
        * We only create connections if we need another idle connection or have threads still waiting
-       * for a new connection.  Otherwise we bail out of the request to create.
+       * for a new connection, beyond those already being created.  Otherwise we bail out of the request
+       * to create.  This is a lock-free snapshot of the pool counters; a transient over- or under-estimate
+       * is corrected by the next fill or borrow request.
        *
+       * @param inFlight the number of connections being created by other creator tasks
        * @return true if we should create a connection, false if the need has disappeared
        */
-      private synchronized boolean shouldCreateAnotherConnection() {
-         return getTotalConnections() < config.getMaximumPoolSize() &&
-            (connectionBag.getWaitingThreadCount() > 0 || getIdleConnections() < config.getMinimumIdle());
+      private boolean shouldCreateAnotherConnection(final int inFlight) {
+         final int totalConnections = getTotalConnections() + inFlight;
+         return totalConnections < getMaximumPoolSize() &&
+            (connectionBag.getWaitingThreadCount() > inFlight || getIdleConnections() + inFlight < config.getMinimumIdle() || totalConnections < getEffectiveMinimumConnections());
       }
    }
 
    /**
-    * The house keeping task to retire and maintain minimum idle connections.
+    * The house keeping task to retire and maintain minimum idle connections.  It runs every lifecycle tick to advance
+    * the lifecycle wheel, and does its house keeping every housekeeping period, rounded to a whole number of ticks.
     */
    private final class HouseKeeper implements Runnable
    {
-      private volatile long previous = plusMillis(currentTime(), -housekeepingPeriodMs);
+      private final long ticksPerPeriod = Math.max(1L, Math.round((double) housekeepingPeriodMs / lifecycleTickMs));
+      private final long periodMs = ticksPerPeriod * lifecycleTickMs;
+      private volatile long previous = plusMillis(currentTime(), -periodMs);
+      // the first house keeping is done about 100ms after the pool starts
+      private long ticksUntilHouseKeeping = Math.max(1L, 100L / lifecycleTickMs);
 
       @Override
       public void run()
       {
+         try {
+            lifecycleWheel.run();
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in lifecycle wheel", e);
+         }
+
+         if (--ticksUntilHouseKeeping > 0) {
+            return;
+         }
+         ticksUntilHouseKeeping = ticksPerPeriod;
+
          try {
             // refresh values in case they changed via MBean
             connectionTimeout = config.getConnectionTimeout();
@@ -776,27 +1559,33 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             final long now = currentTime();
 
             // Detect retrograde time, allowing +128ms as per NTP spec.
-            if (plusMillis(now, 128) < plusMillis(previous, housekeepingPeriodMs)) {
+            if (plusMillis(now, 128) < plusMillis(previous, periodMs)) {
                logger.warn("{} - Retrograde clock change detected (housekeeper delta={}), soft-evicting connections from pool.",
                            poolName, elapsedDisplayString(previous, now));
                previous = now;
                softEvictConnections();
                return;
             }
-            else if (now > plusMillis(previous, (3 * housekeepingPeriodMs) / 2)) {
+            else if (now > plusMillis(previous, (3 * periodMs) / 2)) {
                // No point evicting for forward clock motion, this merely accelerates connection retirement anyway
                logger.warn("{} - Thread starvation or clock leap detected (housekeeper delta={}).", poolName, elapsedDisplayString(previous, now));
             }
 
             previous = now;
 
+            if (demandForecaster != null) {
+               demandForecaster.update(getActiveConnections() + getThreadsAwaitingConnection());
+               logger.debug("{} - Connection demand forecast {}, effective minimum connections {}.", poolName,
+                            demandForecaster.getForecast(), getEffectiveMinimumConnections());
+            }
+
             String afterPrefix = "Pool ";
             if (idleTimeout > 0L && config.getMinimumIdle() < config.getMaximumPoolSize()) {
                logPoolState("Before cleanup ");
                afterPrefix = "After cleanup  ";
 
                final List<PoolEntry> notInUse = connectionBag.values(STATE_NOT_IN_USE);
-               int toRemove = notInUse.size() - config.getMinimumIdle();
+               int toRemove = Math.min(notInUse.size() - config.getMinimumIdle(), getTotalConnections() - getEffectiveMinimumConnections());
                for (PoolEntry entry : notInUse) {
                   if (toRemove > 0 && elapsedMillis(entry.lastAccessed, now) > idleTimeout && connectionBag.reserve(entry)) {
                      closeConnection(entry, "(connection has passed idleTimeout)");
@@ -805,6 +1594,9 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
                }
             }
 
+            // maximumPoolSize may have been lowered via MBean
+            retireExcessConnections();
+
             logPoolState(afterPrefix);
 
             fillPool(); // Try to maintain minimum connections
@@ -815,44 +1607,185 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
-   private final class MaxLifetimeTask implements Runnable
+   /**
+    * The task that validates idle connections shortly before they leave the alive bypass window, so that
+    * borrowers need not validate them.  It runs four times per window on the house keeping thread, and reserves the
+    * connections that would otherwise leave the window before its run after next; they are validated on the
+    * validator thread, and unreserved (or evicted) there.
+    */
+   private final class ValidateAheadTask implements Runnable
    {
-      private final PoolEntry poolEntry;
+      private final long periodMs;
 
-      MaxLifetimeTask(final PoolEntry poolEntry)
+      ValidateAheadTask(final long periodMs)
       {
-         this.poolEntry = poolEntry;
+         this.periodMs = periodMs;
       }
 
+      @Override
       public void run()
       {
-         if (softEvictConnection(poolEntry, "(connection has passed maxLifetime)", false /* not owner */)) {
+         try {
+            for (PoolEntry poolEntry : connectionBag.values(STATE_NOT_IN_USE)) {
+               if (poolState != POOL_NORMAL) {
+                  return;
+               }
+
+               final long now = currentTime();
+               if (poolEntry.isMarkedEvicted() || !isValidationDue(poolEntry, plusMillis(now, 2 * periodMs)) || !connectionBag.reserve(poolEntry)) {
+                  continue;
+               }
+
+               // a validation can block for up to validationTimeout, so it must not hold up the house keeping thread
+               try {
+                  validateAheadExecutor.execute(() -> validateAhead(poolEntry));
+               }
+               catch (RejectedExecutionException e) {
+                  // the pool is shutting down
+                  connectionBag.unreserve(poolEntry);
+                  return;
+               }
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in validate ahead task", e);
+         }
+      }
+
+      private void validateAhead(final PoolEntry poolEntry)
+      {
+         if (poolState != POOL_NORMAL) {
+            connectionBag.unreserve(poolEntry);
+         }
+         else if (isConnectionAlive(poolEntry.connection)) {
+            poolEntry.lastValidated = currentTime();
+            connectionBag.unreserve(poolEntry);
+         }
+         else {
+            softEvictConnection(poolEntry, DEAD_CONNECTION_MESSAGE, true);
             addBagItem(connectionBag.getWaitingThreadCount());
          }
       }
    }
 
-   private final class KeepaliveTask implements Runnable
+   /**
+    * The task that adjusts the effective maximum pool size of an adaptive pool.
+    */
+   private final class PoolSizerTask implements Runnable
    {
-      private final PoolEntry poolEntry;
-
-      KeepaliveTask(final PoolEntry poolEntry)
+      @Override
+      public void run()
       {
-         this.poolEntry = poolEntry;
+         try {
+            final int previous = poolSizer.getLimit();
+            final int limit = poolSizer.update(getTotalConnections(), getThreadsAwaitingConnection());
+            if (limit < previous) {
+               logger.info("{} - Database is slowing down, reduced effective maximum pool size from {} to {}.", poolName, previous, limit);
+               retireExcessConnections();
+            }
+            else if (limit > previous) {
+               logger.debug("{} - Increased effective maximum pool size from {} to {}.", poolName, previous, limit);
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in pool sizing task", e);
+         }
       }
+   }
 
-      public void run()
+   /**
+    * Receives the connections whose maxLifetime or keepalive deadlines have fallen due on the lifecycle wheel.
+    */
+   private final class LifecycleListener implements LifecycleWheel.Listener
+   {
+      @Override
+      public void endOfLife(final PoolEntry poolEntry, final String reason)
       {
-         if (connectionBag.reserve(poolEntry)) {
-            if (!isConnectionAlive(poolEntry.connection)) {
-               softEvictConnection(poolEntry, DEAD_CONNECTION_MESSAGE, true);
-               addBagItem(connectionBag.getWaitingThreadCount());
+         try {
+            if (retirementPermits != null && poolState == POOL_NORMAL && !poolEntry.isMarkedEvicted() && poolEntry.getState() != STATE_REMOVED) {
+               if (retirementPermits.tryAcquire()) {
+                  // at the maximum pool size, only an idle connection is replaced first, and it is reserved so that
+                  // it is closed as soon as its replacement is added, rather than whenever a borrower returns it
+                  final boolean owner = getTotalConnections() >= getMaximumPoolSize();
+                  if (owner && !connectionBag.reserve(poolEntry)) {
+                     retirementPermits.release();
+                     retire(poolEntry, reason, false);
+                     return;
+                  }
+
+                  try {
+                     replacementExecutor.execute(() -> replaceThenRetire(poolEntry, reason, owner));
+                  }
+                  catch (RejectedExecutionException e) {
+                     // shutting down, no replacement is needed
+                     retirementPermits.release();
+                     retire(poolEntry, reason, owner);
+                  }
+               }
+               else {
+                  // too many retirements in progress, the connection stays in service a little longer
+                  lifecycleWheel.scheduleEndOfLife(poolEntry, RETIREMENT_RETRY_MS, reason);
+               }
             }
             else {
-               connectionBag.unreserve(poolEntry);
-               logger.debug("{} - keepalive: connection {} is alive", poolName, poolEntry.connection);
+               retire(poolEntry, reason, false);
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in maxLifetime task", e);
+         }
+      }
+
+      @Override
+      public void keepalive(final PoolEntry poolEntry)
+      {
+         try {
+            if (connectionBag.reserve(poolEntry)) {
+               if (!isConnectionAlive(poolEntry.connection)) {
+                  softEvictConnection(poolEntry, DEAD_CONNECTION_MESSAGE, true);
+                  if (retirementPermits != null) {
+                     // do not wait for the dead connection to close before replacing it
+                     fillPool();
+                  }
+                  addBagItem(connectionBag.getWaitingThreadCount());
+               }
+               else {
+                  connectionBag.unreserve(poolEntry);
+                  logger.debug("{} - keepalive: connection {} is alive", poolName, poolEntry.connection);
+               }
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in keepalive task", e);
+         }
+      }
+
+      /**
+       * Add a replacement connection to the pool while this one is still open, then retire this one.
+       *
+       * @param owner true if the entry has been reserved by the caller
+       */
+      private void replaceThenRetire(final PoolEntry poolEntry, final String reason, final boolean owner)
+      {
+         final Connection retiring = poolEntry.connection;
+         try {
+            final PoolEntry replacement = poolState == POOL_NORMAL ? createPoolEntry() : null;
+            if (replacement != null) {
+               connectionBag.add(replacement);
+               logger.debug("{} - Added connection {} to replace {}", poolName, replacement.connection, retiring);
             }
          }
+         finally {
+            retirementPermits.release();
+            retire(poolEntry, reason, owner);
+         }
+      }
+
+      private void retire(final PoolEntry poolEntry, final String reason, final boolean owner)
+      {
+         if (softEvictConnection(poolEntry, reason, owner)) {
+            addBagItem(connectionBag.getWaitingThreadCount());
+         }
       }
    }
 
@@ -869,4 +1802,24 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
          super("Failed to initialize pool: " + t.getMessage(), t);
       }
    }
+
+   /**
+    * Thrown to a borrower that found no idle connection while {@code maxWaiters} threads were already waiting.
+    * It carries no stack trace, so that rejecting borrowers stays cheap when the pool is overloaded.
+    */
+   public static class ConnectionRejectedException extends SQLTransientConnectionException
+   {
+      private static final long serialVersionUID = 4710834623097381286L;
+
+      ConnectionRejectedException(final String message)
+      {
+         super(message);
+      }
+
+      @Override
+      public synchronized Throwable fillInStackTrace()
+      {
+         return this;
+      }
+   }
 }
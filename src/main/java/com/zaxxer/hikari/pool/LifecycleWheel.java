@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.toMillis;
+
+/**
+ * A hashed timer wheel holding the end-of-life and keepalive deadlines of a pool's connections.  The deadlines
+ * are kept as timestamps on each {@link PoolEntry}, and an entry is linked into the slot of the wheel for its
+ * earliest deadline, so that scheduling and cancelling are constant time and allocate nothing.  The pool's house
+ * keeper, run every tick on the house keeping executor, collects the entries that have fallen due in the slots passed
+ * since the last tick and fires them as a batch, outside of the lock.
+ * <p>
+ * The slot an entry is linked into is computed from its deadline modulo the size of the wheel, so an entry whose
+ * deadline is more than one revolution away is passed over, and left in place, until its revolution comes.
+ *
+ * @author Brett Wooldridge
+ */
+final class LifecycleWheel implements Runnable
+{
+   static final long NO_DEADLINE = Long.MIN_VALUE;
+
+   /**
+    * Receives the entries whose deadlines have fallen due.  It is called on the thread running the wheel.
+    */
+   interface Listener
+   {
+      void endOfLife(PoolEntry poolEntry, String reason);
+
+      void keepalive(PoolEntry poolEntry);
+   }
+
+   private final long tickMs;
+   private final int mask;
+   private final PoolEntry[] slots;
+   private final Listener listener;
+   private final ReentrantLock lock = new ReentrantLock();
+
+   // the last tick run, guarded by the lock
+   private long cursor;
+
+   // the entries fallen due in a tick, reused by each run
+   private final List<PoolEntry> endOfLifeDue = new ArrayList<>();
+   private final List<String> endOfLifeReasons = new ArrayList<>();
+   private final List<PoolEntry> keepaliveDue = new ArrayList<>();
+
+   /**
+    * Construct a wheel.
+    *
+    * @param tickMs the length of a tick in milliseconds, which is the resolution of the deadlines
+    * @param size the number of slots, rounded up to a power of two
+    * @param listener the receiver of the entries fallen due
+    */
+   LifecycleWheel(final long tickMs, final int size, final Listener listener)
+   {
+      this.tickMs = tickMs;
+      this.slots = new PoolEntry[Integer.highestOneBit(Math.max(1, size - 1)) << 1];
+      this.mask = slots.length - 1;
+      this.listener = listener;
+      this.cursor = Math.floorDiv(now(), tickMs);
+   }
+
+   /**
+    * Get the length of a tick.
+    *
+    * @return the tick in milliseconds
+    */
+   long getTickMs()
+   {
+      return tickMs;
+   }
+
+   /**
+    * Set, or replace, the end of life of an entry.
+    *
+    * @param poolEntry the entry
+    * @param delayMs the time in milliseconds from now that the entry reaches its end of life
+    * @param reason the reason to log when the connection is closed
+    */
+   void scheduleEndOfLife(final PoolEntry poolEntry, final long delayMs, final String reason)
+   {
+      lock.lock();
+      try {
+         poolEntry.endOfLifeAt = now() + delayMs;
+         poolEntry.endOfLifeReason = reason;
+         relink(poolEntry);
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Start the keepalive of an entry, which falls due every interval from now on until the entry is cancelled.
+    *
+    * @param poolEntry the entry
+    * @param intervalMs the keepalive interval in milliseconds
+    */
+   void scheduleKeepalive(final PoolEntry poolEntry, final long intervalMs)
+   {
+      lock.lock();
+      try {
+         poolEntry.keepaliveInterval = intervalMs;
+         poolEntry.keepaliveAt = now() + intervalMs;
+         relink(poolEntry);
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Remove all deadlines of an entry.
+    *
+    * @param poolEntry the entry
+    */
+   void cancel(final PoolEntry poolEntry)
+   {
+      lock.lock();
+      try {
+         poolEntry.endOfLifeAt = NO_DEADLINE;
+         poolEntry.keepaliveAt = NO_DEADLINE;
+         unlink(poolEntry);
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Fire the entries that have fallen due since the last run.
+    */
+   @Override
+   public void run()
+   {
+      lock.lock();
+      try {
+         final long now = now();
+         final long tick = Math.floorDiv(now, tickMs);
+         // after a stall longer than a revolution, every slot is visited once
+         final long first = Math.max(cursor + 1, tick - mask);
+         for (long t = first; t <= tick; t++) {
+            collectDue((int) (t & mask), now);
+         }
+         cursor = Math.max(cursor, tick);
+      }
+      finally {
+         lock.unlock();
+      }
+
+      try {
+         for (int i = 0; i < endOfLifeDue.size(); i++) {
+            listener.endOfLife(endOfLifeDue.get(i), endOfLifeReasons.get(i));
+         }
+
+         for (int i = 0; i < keepaliveDue.size(); i++) {
+            listener.keepalive(keepaliveDue.get(i));
+         }
+      }
+      finally {
+         endOfLifeDue.clear();
+         endOfLifeReasons.clear();
+         keepaliveDue.clear();
+      }
+   }
+
+   private void collectDue(final int slot, final long now)
+   {
+      PoolEntry poolEntry = slots[slot];
+      while (poolEntry != null) {
+         final PoolEntry next = poolEntry.wheelNext;
+         if (nextDeadline(poolEntry) <= now) {
+            if (poolEntry.endOfLifeAt != NO_DEADLINE && poolEntry.endOfLifeAt <= now) {
+               endOfLifeDue.add(poolEntry);
+               endOfLifeReasons.add(poolEntry.endOfLifeReason);
+               poolEntry.endOfLifeAt = NO_DEADLINE;
+            }
+
+            if (poolEntry.keepaliveAt != NO_DEADLINE && poolEntry.keepaliveAt <= now) {
+               keepaliveDue.add(poolEntry);
+               poolEntry.keepaliveAt = now + poolEntry.keepaliveInterval;
+            }
+
+            relink(poolEntry);
+         }
+         poolEntry = next;
+      }
+   }
+
+   /**
+    * Link an entry into the slot for its earliest deadline, unlinking it from its current slot.  Called with the
+    * lock held.
+    */
+   private void relink(final PoolEntry poolEntry)
+   {
+      unlink(poolEntry);
+
+      final long deadline = nextDeadline(poolEntry);
+      if (deadline == Long.MAX_VALUE) {
+         return;
+      }
+
+      // a deadline is due in the first tick that ends at or after it, and never in a tick already run
+      final long tick = Math.max(cursor + 1, -Math.floorDiv(-deadline, tickMs));
+      final int slot = (int) (tick & mask);
+      final PoolEntry head = slots[slot];
+      poolEntry.wheelNext = head;
+      if (head != null) {
+         head.wheelPrev = poolEntry;
+      }
+      slots[slot] = poolEntry;
+      poolEntry.wheelSlot = slot;
+   }
+
+   /**
+    * Unlink an entry from its slot, if it is linked.  Called with the lock held.
+    */
+   private void unlink(final PoolEntry poolEntry)
+   {
+      if (poolEntry.wheelSlot < 0) {
+         return;
+      }
+
+      final PoolEntry prev = poolEntry.wheelPrev;
+      final PoolEntry next = poolEntry.wheelNext;
+      if (prev != null) {
+         prev.wheelNext = next;
+      }
+      else {
+         slots[poolEntry.wheelSlot] = next;
+      }
+      if (next != null) {
+         next.wheelPrev = prev;
+      }
+
+      poolEntry.wheelPrev = null;
+      poolEntry.wheelNext = null;
+      poolEntry.wheelSlot = -1;
+   }
+
+   private static long nextDeadline(final PoolEntry poolEntry)
+   {
+      final long endOfLife = poolEntry.endOfLifeAt != NO_DEADLINE ? poolEntry.endOfLifeAt : Long.MAX_VALUE;
+      final long keepalive = poolEntry.keepaliveAt != NO_DEADLINE ? poolEntry.keepaliveAt : Long.MAX_VALUE;
+      return Math.min(endOfLife, keepalive);
+   }
+
+   private static long now()
+   {
+      return toMillis(currentTime());
+   }
+}
@@ -16,6 +16,7 @@
 
 package com.zaxxer.hikari.pool;
 
+import com.zaxxer.hikari.ConnectionValidator;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.SQLExceptionOverride;
 import com.zaxxer.hikari.metrics.IMetricsTracker;
@@ -34,10 +35,13 @@ import javax.naming.NamingException;
 import javax.sql.DataSource;
 import java.lang.management.ManagementFactory;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -55,17 +59,22 @@ abstract class PoolBase
    private final Logger logger = LoggerFactory.getLogger(PoolBase.class);
 
    public final HikariConfig config;
-   IMetricsTrackerDelegate metricsTracker;
+   // a no-op until the pool has set up its metrics, so that it is never null, even during the fail fast check
+   IMetricsTrackerDelegate metricsTracker = new NopMetricsTrackerDelegate();
 
    protected final String poolName;
 
    volatile String catalog;
    final AtomicReference<Exception> lastConnectionFailure;
+   // null unless connection creation has a circuit breaker
+   final CircuitBreaker circuitBreaker;
 
    long connectionTimeout;
    long validationTimeout;
 
    SQLExceptionOverride exceptionOverride;
+   final ConnectionValidator connectionValidator;
+   final AliveBypassWindow aliveBypassWindow;
 
    private static final String[] RESET_STATES = {"readOnly", "autoCommit", "isolation", "catalog", "netTimeout", "schema"};
    private static final int UNINITIALIZED = -1;
@@ -104,12 +113,15 @@ abstract class PoolBase
       this.isQueryTimeoutSupported = UNINITIALIZED;
       this.isNetworkTimeoutSupported = UNINITIALIZED;
       this.isUseJdbc4Validation = config.getConnectionTestQuery() == null;
+      this.connectionValidator = createConnectionValidator();
+      this.aliveBypassWindow = new AliveBypassWindow(Long.getLong("com.zaxxer.hikari.aliveBypassWindowMs", MILLISECONDS.toMillis(500)), config.getMaxAliveBypassWindow());
       this.isIsolateInternalQueries = config.isIsolateInternalQueries();
 
       this.poolName = config.getPoolName();
       this.connectionTimeout = config.getConnectionTimeout();
       this.validationTimeout = config.getValidationTimeout();
       this.lastConnectionFailure = new AtomicReference<>();
+      this.circuitBreaker = config.getCircuitBreakerThreshold() > 0 ? new CircuitBreaker(config.getCircuitBreakerThreshold(), config.getCircuitBreakerOpenTime()) : null;
 
       initializeDataSource();
    }
@@ -152,34 +164,30 @@ abstract class PoolBase
    boolean isConnectionAlive(final Connection connection)
    {
       try {
+         final boolean isSetNetworkTimeout = !connectionValidator.enforcesTimeout();
          try {
-            setNetworkTimeout(connection, validationTimeout);
-
-            final int validationSeconds = (int) Math.max(1000L, validationTimeout) / 1000;
-
-            if (isUseJdbc4Validation) {
-               return connection.isValid(validationSeconds);
+            if (isSetNetworkTimeout) {
+               setNetworkTimeout(connection, validationTimeout);
             }
 
-            try (Statement statement = connection.createStatement()) {
-               if (isNetworkTimeoutSupported != TRUE) {
-                  setQueryTimeout(statement, validationSeconds);
-               }
+            final int validationSeconds = (int) Math.max(1000L, validationTimeout) / 1000;
 
-               statement.execute(config.getConnectionTestQuery());
-            }
+            final boolean isAlive = connectionValidator.isAlive(connection, validationSeconds);
+            aliveBypassWindow.recordValidation(isAlive);
+            return isAlive;
          }
          finally {
-            setNetworkTimeout(connection, networkTimeout);
+            if (isSetNetworkTimeout) {
+               setNetworkTimeout(connection, networkTimeout);
+            }
 
             if (isIsolateInternalQueries && !isAutoCommit) {
                connection.rollback();
             }
          }
-
-         return true;
       }
       catch (Exception e) {
+         aliveBypassWindow.recordValidation(false);
          lastConnectionFailure.set(e);
          logger.warn("{} - Failed to validate connection {} ({}). Possibly consider using a shorter maxLifetime value.",
                      poolName, connection, e.getMessage());
@@ -187,6 +195,21 @@ abstract class PoolBase
       }
    }
 
+   /**
+    * Release the state the validator holds for a connection that is about to be closed.
+    *
+    * @param connection the connection
+    */
+   void connectionClosing(final Connection connection)
+   {
+      try {
+         connectionValidator.closed(connection);
+      }
+      catch (Exception e) {
+         logger.debug("{} - Validator failed to release connection {}", poolName, connection, e);
+      }
+   }
+
    Exception getLastConnectionFailure()
    {
       return lastConnectionFailure.get();
@@ -245,6 +268,25 @@ abstract class PoolBase
       }
    }
 
+   /**
+    * Reset the catalog and schema preserved for a labelled borrower (see {@link PoolEntry#applyLabel(String)})
+    * to the pool defaults.
+    *
+    * @param connection the connection
+    * @param labelledBits the DIRTY_BIT_CATALOG and DIRTY_BIT_SCHEMA bits that were preserved
+    * @throws SQLException if the state could not be reset
+    */
+   void resetLabelledState(final Connection connection, final int labelledBits) throws SQLException
+   {
+      if ((labelledBits & DIRTY_BIT_CATALOG) != 0 && catalog != null) {
+         connection.setCatalog(catalog);
+      }
+
+      if ((labelledBits & DIRTY_BIT_SCHEMA) != 0 && schema != null) {
+         connection.setSchema(schema);
+      }
+   }
+
    void shutdownNetworkTimeoutExecutor()
    {
       if (netTimeoutExecutor instanceof ThreadPoolExecutor) {
@@ -309,6 +351,19 @@ abstract class PoolBase
    //                          Private methods
    // ***********************************************************************
 
+   /**
+    * Create the validator of connections, which is the user supplied one if there is one, otherwise one that runs the
+    * connection test query if there is one, otherwise Connection.isValid().
+    */
+   private ConnectionValidator createConnectionValidator()
+   {
+      if (config.getConnectionValidatorClassName() != null) {
+         return createInstance(config.getConnectionValidatorClassName(), ConnectionValidator.class);
+      }
+
+      return isUseJdbc4Validation ? Connection::isValid : new TestQueryValidator(config.getConnectionTestQuery());
+   }
+
    /**
     * Create/initialize the underlying DataSource.
     */
@@ -354,6 +409,14 @@ abstract class PoolBase
     */
    private Connection newConnection() throws Exception
    {
+      if (circuitBreaker != null && !circuitBreaker.tryAttempt()) {
+         throw new SQLTransientConnectionException(poolName + " - Connection attempt suppressed, the circuit breaker is open");
+      }
+
+      if (ConnectionRateLimiter.SHARED != null) {
+         ConnectionRateLimiter.SHARED.acquire();
+      }
+
       final long start = currentTime();
 
       Connection connection = null;
@@ -368,6 +431,9 @@ abstract class PoolBase
 
          setupConnection(connection);
          lastConnectionFailure.set(null);
+         if (circuitBreaker != null && circuitBreaker.recordSuccess()) {
+            logger.info("{} - Connection attempt succeeded, closed the circuit breaker.", poolName);
+         }
          return connection;
       }
       catch (Exception e) {
@@ -379,13 +445,13 @@ abstract class PoolBase
          }
 
          lastConnectionFailure.set(e);
+         if (circuitBreaker != null && circuitBreaker.recordFailure()) {
+            logger.warn("{} - Connection attempts are failing, opened the circuit breaker for {}ms: {}", poolName, config.getCircuitBreakerOpenTime(), e.getMessage());
+         }
          throw e;
       }
       finally {
-         // tracker will be null during failFast check
-         if (metricsTracker != null) {
-            metricsTracker.recordConnectionCreated(elapsedMillis(start));
-         }
+         metricsTracker.recordConnectionCreated(elapsedMillis(start));
       }
    }
 
@@ -459,6 +525,11 @@ abstract class PoolBase
     */
    private void checkValidationSupport(final Connection connection) throws SQLException
    {
+      if (config.getConnectionValidatorClassName() != null) {
+         // a user supplied validator is first exercised by the validation of a connection
+         return;
+      }
+
       try {
          if (isUseJdbc4Validation) {
             connection.isValid(1);
@@ -652,6 +723,85 @@ abstract class PoolBase
       return sb.toString();
    }
 
+   /**
+    * Validates connections with the connection test query, prepared once for each connection rather than run through
+    * a new Statement on every validation.
+    */
+   private final class TestQueryValidator implements ConnectionValidator
+   {
+      private final String testQuery;
+      // keyed by identity, a driver's equals() and hashCode() may not be cheap, or even safe on a closing connection
+      private final Map<IdentityKey, PreparedStatement> statements = new ConcurrentHashMap<>();
+
+      TestQueryValidator(final String testQuery)
+      {
+         this.testQuery = testQuery;
+      }
+
+      @Override
+      public boolean isAlive(final Connection connection, final int timeoutSeconds) throws SQLException
+      {
+         final IdentityKey key = new IdentityKey(connection);
+         PreparedStatement statement = statements.get(key);
+         if (statement == null) {
+            statement = connection.prepareStatement(testQuery);
+            statements.put(key, statement);
+         }
+
+         try {
+            if (isNetworkTimeoutSupported != TRUE) {
+               setQueryTimeout(statement, timeoutSeconds);
+            }
+
+            statement.execute();
+            return true;
+         }
+         catch (SQLException e) {
+            // the statement may be broken along with the connection, so it is prepared anew
+            statements.remove(key);
+            try {
+               statement.close();
+            }
+            catch (SQLException ignored) {
+               // ignore
+            }
+            throw e;
+         }
+      }
+
+      @Override
+      public void closed(final Connection connection)
+      {
+         // the statement is closed along with the connection
+         statements.remove(new IdentityKey(connection));
+      }
+   }
+
+   /**
+    * A map key that compares the connection it wraps by identity.
+    */
+   private static final class IdentityKey
+   {
+      private final Connection connection;
+
+      IdentityKey(final Connection connection)
+      {
+         this.connection = connection;
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         return other instanceof IdentityKey && ((IdentityKey) other).connection == connection;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return System.identityHashCode(connection);
+      }
+   }
+
    // ***********************************************************************
    //                      Private Static Classes
    // ***********************************************************************
@@ -697,6 +847,14 @@ abstract class PoolBase
 
       default void recordConnectionTimeout() {}
 
+      default void recordLabelAffinity(boolean hit) {}
+
+      default void recordRetirementShift(long shiftMillis) {}
+
+      default void recordBorrowRejected() {}
+
+      default void recordLeakReclaimed(String callSite) {}
+
       @Override
       default void close() {}
    }
@@ -746,6 +904,35 @@ abstract class PoolBase
          tracker.recordConnectionTimeout();
       }
 
+      @Override
+      public void recordLabelAffinity(final boolean hit)
+      {
+         if (hit) {
+            tracker.recordLabelAffinityHit();
+         }
+         else {
+            tracker.recordLabelAffinityMiss();
+         }
+      }
+
+      @Override
+      public void recordRetirementShift(final long shiftMillis)
+      {
+         tracker.recordConnectionRetirementShiftMillis(shiftMillis);
+      }
+
+      @Override
+      public void recordBorrowRejected()
+      {
+         tracker.recordConnectionRejected();
+      }
+
+      @Override
+      public void recordLeakReclaimed(final String callSite)
+      {
+         tracker.recordConnectionLeakReclaimed(callSite);
+      }
+
       @Override
       public void close()
       {
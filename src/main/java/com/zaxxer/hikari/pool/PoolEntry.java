@@ -17,15 +17,15 @@ package com.zaxxer.hikari.pool;
 
 import com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry;
 import com.zaxxer.hikari.util.FastList;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+import static com.zaxxer.hikari.pool.ProxyConnection.DIRTY_BIT_CATALOG;
+import static com.zaxxer.hikari.pool.ProxyConnection.DIRTY_BIT_SCHEMA;
 import static com.zaxxer.hikari.util.ClockSource.*;
 
 /**
@@ -35,20 +35,39 @@ import static com.zaxxer.hikari.util.ClockSource.*;
  */
 final class PoolEntry implements IConcurrentBagEntry
 {
-   private static final Logger LOGGER = LoggerFactory.getLogger(PoolEntry.class);
    private static final AtomicIntegerFieldUpdater<PoolEntry> stateUpdater;
+   private static final int LABELLED_STATE_BITS = DIRTY_BIT_CATALOG | DIRTY_BIT_SCHEMA;
 
    Connection connection;
    long lastAccessed;
    long lastBorrowed;
+   // the last time the connection was validated without being borrowed, by validation ahead of the borrowers
+   long lastValidated;
+   final long creationTime;
+
+   // the label of the current (or last) borrower, and which of its catalog and schema were left on the connection
+   String label;
+   private int labelledBits;
+
+   // the retirement time assigned by the pool's RetirementScheduler, in milliseconds
+   long retireAt = RetirementScheduler.NO_SLOT;
+
+   // the deadlines held by the pool's LifecycleWheel, in milliseconds, and its links; guarded by the wheel's lock
+   long endOfLifeAt = LifecycleWheel.NO_DEADLINE;
+   String endOfLifeReason;
+   long keepaliveAt = LifecycleWheel.NO_DEADLINE;
+   long keepaliveInterval;
+   PoolEntry wheelPrev;
+   PoolEntry wheelNext;
+   int wheelSlot = -1;
+
+   // the leak detection state, reused by each borrow; created on the first borrow with leak detection enabled
+   ProxyLeakTask leakTask;
 
    @SuppressWarnings("FieldCanBeLocal")
    private volatile int state = 0;
    private volatile boolean evict;
 
-   private volatile ScheduledFuture<?> endOfLife;
-   private volatile ScheduledFuture<?> keepalive;
-
    private final FastList<Statement> openStatements;
    private final HikariPool hikariPool;
 
@@ -66,7 +85,9 @@ final class PoolEntry implements IConcurrentBagEntry
       this.hikariPool = (HikariPool) pool;
       this.isReadOnly = isReadOnly;
       this.isAutoCommit = isAutoCommit;
-      this.lastAccessed = currentTime();
+      this.creationTime = currentTime();
+      this.lastAccessed = creationTime;
+      this.lastValidated = creationTime;
       this.openStatements = new FastList<>(Statement.class, 16);
    }
 
@@ -83,28 +104,40 @@ final class PoolEntry implements IConcurrentBagEntry
       }
    }
 
-   /**
-    * Set the end of life {@link ScheduledFuture}.
-    *
-    * @param endOfLife this PoolEntry/Connection's end of life {@link ScheduledFuture}
-    */
-   void setFutureEol(final ScheduledFuture<?> endOfLife)
+   Connection createProxyConnection(final ProxyLeakTask leakTask, final long now)
    {
-      this.endOfLife = endOfLife;
+      final ProxyConnection proxyConnection = ProxyFactory.getProxyConnection(this, connection, openStatements, leakTask, now, isReadOnly, isAutoCommit);
+      leakTask.start(proxyConnection);
+      return proxyConnection;
    }
 
-   public void setKeepalive(ScheduledFuture<?> keepalive) {
-      this.keepalive = keepalive;
-   }
-
-   Connection createProxyConnection(final ProxyLeakTask leakTask, final long now)
+   void resetConnectionState(final ProxyConnection proxyConnection, final int dirtyBits) throws SQLException
    {
-      return ProxyFactory.getProxyConnection(this, connection, openStatements, leakTask, now, isReadOnly, isAutoCommit);
+      int resetBits = dirtyBits;
+      if (label != null) {
+         // keep a labelled borrower's catalog and schema for the next borrower with the same label
+         labelledBits |= dirtyBits & LABELLED_STATE_BITS;
+         resetBits &= ~LABELLED_STATE_BITS;
+      }
+
+      hikariPool.resetConnectionState(connection, proxyConnection, resetBits);
    }
 
-   void resetConnectionState(final ProxyConnection proxyConnection, final int dirtyBits) throws SQLException
+   /**
+    * Assign the label of a borrower, or null for an unlabelled borrower, to this entry.  If a borrower with a
+    * different label left its catalog or schema on the connection, they are first reset to the pool defaults.
+    *
+    * @param label the borrower's label, or null
+    * @throws SQLException if the preserved state could not be reset
+    */
+   void applyLabel(final String label) throws SQLException
    {
-      hikariPool.resetConnectionState(connection, proxyConnection, dirtyBits);
+      if (labelledBits != 0 && (label == null || !label.equals(this.label))) {
+         hikariPool.resetLabelledState(connection, labelledBits);
+         labelledBits = 0;
+      }
+
+      this.label = label;
    }
 
    String getPoolName()
@@ -127,6 +160,27 @@ final class PoolEntry implements IConcurrentBagEntry
       hikariPool.closeConnection(this, closureReason);
    }
 
+   /**
+    * Get the ConcurrentBag borrow order for a {@link com.zaxxer.hikari.HikariConfig#setBorrowOrder(String)} name.
+    * Timestamps are compared by their difference, as ClockSource times may wrap.
+    *
+    * @param borrowOrder the name of the borrow order
+    * @return a comparator ordering the best entry to borrow first, or null for the bag's default (affinity) order
+    */
+   static Comparator<PoolEntry> borrowOrder(final String borrowOrder)
+   {
+      switch (borrowOrder) {
+      case "MRU":
+         return (entry1, entry2) -> Long.signum(entry2.lastAccessed - entry1.lastAccessed);
+      case "LRU":
+         return (entry1, entry2) -> Long.signum(entry1.lastAccessed - entry2.lastAccessed);
+      case "YOUNGEST_FIRST":
+         return (entry1, entry2) -> Long.signum(entry2.creationTime - entry1.creationTime);
+      default:
+         return null;
+      }
+   }
+
    /** Returns millis since lastBorrowed */
    long getMillisSinceBorrowed()
    {
@@ -175,20 +229,13 @@ final class PoolEntry implements IConcurrentBagEntry
 
    Connection close()
    {
-      ScheduledFuture<?> eol = endOfLife;
-      if (eol != null && !eol.isDone() && !eol.cancel(false)) {
-         LOGGER.warn("{} - maxLifeTime expiration task cancellation unexpectedly returned false for connection {}", getPoolName(), connection);
-      }
-
-      ScheduledFuture<?> ka = keepalive;
-      if (ka != null && !ka.isDone() && !ka.cancel(false)) {
-         LOGGER.warn("{} - keepalive task cancellation unexpectedly returned false for connection {}", getPoolName(), connection);
-      }
+      hikariPool.lifecycleWheel.cancel(this);
 
       Connection con = connection;
+      if (con != null) {
+         hikariPool.connectionClosing(con);
+      }
       connection = null;
-      endOfLife = null;
-      keepalive = null;
       return con;
    }
 
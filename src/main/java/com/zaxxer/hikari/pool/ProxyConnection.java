@@ -27,6 +27,7 @@ import java.sql.*;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.zaxxer.hikari.SQLExceptionOverride.Override.DO_NOT_EVICT;
 import static com.zaxxer.hikari.util.ClockSource.currentTime;
@@ -54,8 +55,14 @@ public abstract class ProxyConnection implements Connection
 
    private final PoolEntry poolEntry;
    private final ProxyLeakTask leakTask;
+   // final, so that a pool that never reclaims pays no volatile read on each call
+   private final boolean isReclaimable;
    private final FastList<Statement> openStatements;
 
+   // guards openStatements; held only for list operations, never across driver calls, and a
+   // ReentrantLock rather than a monitor so that a virtual thread waiting on it does not pin its carrier
+   private final ReentrantLock statementLock = new ReentrantLock();
+
    private int dirtyBits;
    private long lastAccess;
    private boolean isCommitStateDirty;
@@ -96,6 +103,7 @@ public abstract class ProxyConnection implements Connection
       this.delegate = connection;
       this.openStatements = openStatements;
       this.leakTask = leakTask;
+      this.isReclaimable = leakTask != null && leakTask.isReclaimable();
       this.lastAccess = now;
       this.isReadOnly = isReadOnly;
       this.isAutoCommit = isAutoCommit;
@@ -181,17 +189,24 @@ public abstract class ProxyConnection implements Connection
          SQLException exception = (nse != null) ? nse : sqle;
          LOGGER.warn("{} - Connection {} marked as broken because of SQLSTATE({}), ErrorCode({})",
             poolEntry.getPoolName(), delegate, exception.getSQLState(), exception.getErrorCode(), exception);
-         leakTask.cancel();
-         poolEntry.evict("(connection is broken)");
+         if (leakTask.cancel()) {
+            poolEntry.evict("(connection is broken)");
+         }
          delegate = ClosedConnection.CLOSED_CONNECTION;
       }
 
       return sqle;
    }
 
-   final synchronized void untrackStatement(final Statement statement)
+   final void untrackStatement(final Statement statement)
    {
-      openStatements.remove(statement);
+      statementLock.lock();
+      try {
+         openStatements.remove(statement);
+      }
+      finally {
+         statementLock.unlock();
+      }
    }
 
    final void markCommitStateDirty()
@@ -204,38 +219,85 @@ public abstract class ProxyConnection implements Connection
       }
    }
 
-   void cancelLeakTask()
+   boolean cancelLeakTask()
    {
-      leakTask.cancel();
+      return leakTask.cancel();
    }
 
-   private synchronized <T extends Statement> T trackStatement(final T statement)
+   /**
+    * Close this connection on behalf of the pool, which has reclaimed it as leaked.  This write is not visible to
+    * the application's thread by itself; that thread sees the reclamation through {@link #checkReclaimed()}.
+    */
+   final void markReclaimed()
    {
-      openStatements.add(statement);
+      delegate = ClosedConnection.CLOSED_CONNECTION;
+   }
+
+   /**
+    * Close this connection if the pool has reclaimed it as leaked, so that any use of it by the application after
+    * the reclamation throws.  Called at the start of every method of the generated proxy.
+    */
+   final void checkReclaimed()
+   {
+      if (isReclaimable && leakTask.isReclaimed()) {
+         delegate = ClosedConnection.CLOSED_CONNECTION;
+      }
+   }
+
+   private <T extends Statement> T trackStatement(final T statement)
+   {
+      statementLock.lock();
+      try {
+         openStatements.add(statement);
+      }
+      finally {
+         statementLock.unlock();
+      }
 
       return statement;
    }
 
    @SuppressWarnings("EmptyTryBlock")
-   private synchronized void closeStatements()
+   private void closeStatements()
    {
-      final int size = openStatements.size();
-      if (size > 0) {
-         for (int i = 0; i < size && delegate != ClosedConnection.CLOSED_CONNECTION; i++) {
-            try (Statement ignored = openStatements.get(i)) {
-               // automatic resource cleanup
-            }
-            catch (SQLException e) {
-               LOGGER.warn("{} - Connection {} marked as broken because of an exception closing open statements during Connection.close()",
-                           poolEntry.getPoolName(), delegate);
-               leakTask.cancel();
+      // Statements are popped one at a time so that the driver's close() runs outside of the lock
+      while (delegate != ClosedConnection.CLOSED_CONNECTION) {
+         final Statement statement = popStatement();
+         if (statement == null) {
+            return;
+         }
+
+         try (Statement ignored = statement) {
+            // automatic resource cleanup
+         }
+         catch (SQLException e) {
+            LOGGER.warn("{} - Connection {} marked as broken because of an exception closing open statements during Connection.close()",
+                        poolEntry.getPoolName(), delegate);
+            if (leakTask.cancel()) {
                poolEntry.evict("(exception closing Statements during Connection.close())");
-               delegate = ClosedConnection.CLOSED_CONNECTION;
             }
+            delegate = ClosedConnection.CLOSED_CONNECTION;
          }
+      }
 
+      statementLock.lock();
+      try {
          openStatements.clear();
       }
+      finally {
+         statementLock.unlock();
+      }
+   }
+
+   private Statement popStatement()
+   {
+      statementLock.lock();
+      try {
+         return openStatements.isEmpty() ? null : openStatements.removeLast();
+      }
+      finally {
+         statementLock.unlock();
+      }
    }
 
    // **********************************************************************
@@ -250,7 +312,11 @@ public abstract class ProxyConnection implements Connection
       closeStatements();
 
       if (delegate != ClosedConnection.CLOSED_CONNECTION) {
-         leakTask.cancel();
+         if (!leakTask.cancel()) {
+            // the pool reclaimed the connection as leaked, and has already removed it
+            delegate = ClosedConnection.CLOSED_CONNECTION;
+            return;
+         }
 
          try {
             if (isCommitStateDirty && !isAutoCommit) {
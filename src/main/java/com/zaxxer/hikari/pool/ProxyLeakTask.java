@@ -16,79 +16,241 @@
 
 package com.zaxxer.hikari.pool;
 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedMillis;
+
 /**
- * A Runnable that is scheduled in the future to report leaks.  The ScheduledFuture is
- * cancelled if the connection is closed before the leak time expires.
+ * The leak detection state of a {@link PoolEntry}, reused by each borrow of the entry.  A borrow records the time
+ * and the borrowing thread, and on a sampled borrow the call site as well; the periodic sweep of the
+ * {@link ProxyLeakTaskFactory} reports a borrow that has outlived the leak detection threshold, and reclaims one
+ * that has outlived the leak reclaim threshold.  Returning the connection and reclaiming it race for the borrow,
+ * and exactly one of them wins.
  *
  * @author Brett Wooldridge
  */
-class ProxyLeakTask implements Runnable
+class ProxyLeakTask
 {
    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyLeakTask.class);
+   // the classes on the path from the application to the capture of a call site
+   private static final String[] POOL_FRAMES = { ProxyLeakTask.class.getName(), HikariPool.class.getName(), PoolEntry.class.getName() };
+   private static final String[] DATASOURCE_FRAMES = { "com.zaxxer.hikari.HikariDataSource" };
+   private static final AtomicIntegerFieldUpdater<ProxyLeakTask> STATE = AtomicIntegerFieldUpdater.newUpdater(ProxyLeakTask.class, "state");
+   static final String UNKNOWN_CALL_SITE = "unknown";
    static final ProxyLeakTask NO_LEAK;
 
-   private ScheduledFuture<?> scheduledFuture;
-   private String connectionName;
-   private Exception exception;
-   private String threadName; 
-   private boolean isLeaked;
+   private static final int RETURNED = 0;
+   private static final int BORROWED = 1;
+   private static final int RECLAIMED = 2;
+
+   private final String connectionName;
+   private final boolean isReclaimable;
+
+   private Thread thread;
+   private Exception callSite;
+   private ProxyConnection proxyConnection;
+   private long borrowedAt;
+   private volatile boolean isLeaked;
+   private volatile int state;
 
    static
    {
       NO_LEAK = new ProxyLeakTask() {
          @Override
-         void schedule(ScheduledExecutorService executorService, long leakDetectionThreshold) {}
+         void prepare(boolean captureCallSite) {}
 
          @Override
-         public void run() {}
+         void start(ProxyConnection proxyConnection) {}
 
          @Override
-         public void cancel() {}
+         boolean check(long leakDetectionThreshold, long leakReclaimThreshold) { return false; }
+
+         @Override
+         public boolean cancel() { return true; }
       };
    }
 
-   ProxyLeakTask(final PoolEntry poolEntry)
+   ProxyLeakTask(final PoolEntry poolEntry, final boolean isReclaimable)
    {
-      this.exception = new Exception("Apparent connection leak detected");
-      this.threadName = Thread.currentThread().getName();
       this.connectionName = poolEntry.connection.toString();
+      this.isReclaimable = isReclaimable;
    }
 
    private ProxyLeakTask()
    {
+      this.connectionName = null;
+      this.isReclaimable = false;
    }
 
-   void schedule(ScheduledExecutorService executorService, long leakDetectionThreshold)
+   /**
+    * Record a borrow of the entry by the current thread.  The borrow is not visible to the sweep until it is
+    * started.
+    *
+    * @param captureCallSite true if this borrow is sampled, and its call site captured
+    */
+   void prepare(final boolean captureCallSite)
    {
-      scheduledFuture = executorService.schedule(this, leakDetectionThreshold, TimeUnit.MILLISECONDS);
+      thread = Thread.currentThread();
+      callSite = captureCallSite ? new Exception("Apparent connection leak detected") : null;
+      borrowedAt = currentTime();
+      isLeaked = false;
    }
 
-   /** {@inheritDoc} */
-   @Override
-   public void run()
+   /**
+    * Start a prepared borrow, publishing it and the connection handed to the borrower to the sweep.
+    *
+    * @param proxyConnection the borrower's connection, which is closed if the borrow is reclaimed
+    */
+   void start(final ProxyConnection proxyConnection)
    {
-      isLeaked = true;
+      this.proxyConnection = proxyConnection;
+      // the volatile write publishes the fields above to the sweep
+      state = BORROWED;
+   }
+
+   /**
+    * Determine whether a borrow can ever be reclaimed, that is whether leak reclamation is enabled.
+    *
+    * @return true if the leak reclaim threshold is set
+    */
+   boolean isReclaimable()
+   {
+      return isReclaimable;
+   }
+
+   /**
+    * Determine whether the borrow has been reclaimed.  The volatile read makes the reclamation visible to the
+    * borrower's thread.
+    *
+    * @return true if the pool has reclaimed the borrow
+    */
+   boolean isReclaimed()
+   {
+      return state == RECLAIMED;
+   }
+
+   /**
+    * Report the borrow as a leak if it has outlived the detection threshold, and has not been reported already,
+    * and claim it for reclamation if it has outlived the reclaim threshold.  Called by the sweep only.
+    *
+    * @param leakDetectionThreshold the leak detection threshold in milliseconds, 0 if disabled
+    * @param leakReclaimThreshold the leak reclaim threshold in milliseconds, 0 if disabled
+    * @return true if the borrow has been claimed, and the connection must be reclaimed by the caller
+    */
+   boolean check(final long leakDetectionThreshold, final long leakReclaimThreshold)
+   {
+      if (state != BORROWED) {
+         return false;
+      }
 
-      final StackTraceElement[] stackTrace = exception.getStackTrace(); 
-      final StackTraceElement[] trace = new StackTraceElement[stackTrace.length - 5];
-      System.arraycopy(stackTrace, 5, trace, 0, trace.length);
+      final long elapsed = elapsedMillis(borrowedAt);
+      if (leakDetectionThreshold > 0 && elapsed >= leakDetectionThreshold && !isLeaked) {
+         report();
+      }
 
-      exception.setStackTrace(trace);
-      LOGGER.warn("Connection leak detection triggered for {} on thread {}, stack trace follows", connectionName, threadName, exception);
+      return leakReclaimThreshold > 0 && elapsed >= leakReclaimThreshold && STATE.compareAndSet(this, BORROWED, RECLAIMED);
    }
 
-   void cancel()
+   /**
+    * Record the return of the connection by the borrower.
+    *
+    * @return true if the borrow was returned, false if it had been reclaimed in the meantime
+    */
+   boolean cancel()
    {
-      scheduledFuture.cancel(false);
+      if (!STATE.compareAndSet(this, BORROWED, RETURNED)) {
+         return state != RECLAIMED;
+      }
+
       if (isLeaked) {
-         LOGGER.info("Previously reported leaked connection {} on thread {} was returned to the pool (unleaked)", connectionName, threadName);
+         final Thread borrower = thread;
+         LOGGER.info("Previously reported leaked connection {} on thread {} was returned to the pool (unleaked)", connectionName, borrower != null ? borrower.getName() : null);
+      }
+      thread = null;
+      callSite = null;
+      proxyConnection = null;
+      return true;
+   }
+
+   /**
+    * Get the connection handed to the borrower of a reclaimed borrow.
+    *
+    * @return the borrower's connection, or null
+    */
+   ProxyConnection getProxyConnection()
+   {
+      return proxyConnection;
+   }
+
+   /**
+    * Get the call site of a reclaimed borrow, as the first frame outside of the pool.
+    *
+    * @return the call site, or {@link #UNKNOWN_CALL_SITE} if the borrow was not sampled
+    */
+   String getCallSite()
+   {
+      final Exception exception = callSite;
+      if (exception == null) {
+         return UNKNOWN_CALL_SITE;
+      }
+
+      final StackTraceElement[] trace = trimFrames(trimFrames(exception.getStackTrace(), POOL_FRAMES), DATASOURCE_FRAMES);
+      return trace.length > 0 ? trace[0].toString() : UNKNOWN_CALL_SITE;
+   }
+
+   private void report()
+   {
+      final Thread borrower = thread;
+      Exception exception = callSite;
+      if (borrower == null) {
+         return;
+      }
+
+      isLeaked = true;
+      if (exception == null) {
+         // the call site was not sampled, so show where the borrowing thread is now instead
+         exception = new Exception("Apparent connection leak detected, call site not sampled, stack of the borrowing thread follows");
+         exception.setStackTrace(borrower.getStackTrace());
+      }
+      else {
+         exception.setStackTrace(trimFrames(exception.getStackTrace(), POOL_FRAMES));
+      }
+
+      LOGGER.warn("Connection leak detection triggered for {} on thread {}, stack trace follows", connectionName, borrower.getName(), exception);
+   }
+
+   /**
+    * Remove the frames of the given classes, and their nested classes, from the top of a call site, so that it
+    * starts where the application asked for the connection.
+    */
+   private static StackTraceElement[] trimFrames(final StackTraceElement[] stackTrace, final String[] classNames)
+   {
+      int skip = 0;
+      while (skip < stackTrace.length - 1 && isFrameOf(stackTrace[skip], classNames)) {
+         skip++;
+      }
+
+      if (skip == 0) {
+         return stackTrace;
+      }
+
+      final StackTraceElement[] trace = new StackTraceElement[stackTrace.length - skip];
+      System.arraycopy(stackTrace, skip, trace, 0, trace.length);
+      return trace;
+   }
+
+   private static boolean isFrameOf(final StackTraceElement frame, final String[] classNames)
+   {
+      final String className = frame.getClassName();
+      for (String name : classNames) {
+         if (className.startsWith(name)) {
+            return true;
+         }
       }
+      return false;
    }
 }
@@ -17,38 +17,105 @@
 package com.zaxxer.hikari.pool;
 
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
- * A factory for {@link ProxyLeakTask} Runnables that are scheduled in the future to report leaks.
+ * A factory for the {@link ProxyLeakTask} of each borrow, and the periodic sweep over the connections in use that
+ * reports those borrowed for longer than the leak detection threshold, and reclaims those borrowed for longer than
+ * the leak reclaim threshold.  A borrow costs no allocation and no
+ * scheduled task; only one in {@code com.zaxxer.hikari.leakDetection.samplePeriod} borrows captures its call site.
  *
  * @author Brett Wooldridge
  * @author Andreas Brenk
  */
 class ProxyLeakTaskFactory
 {
-   private ScheduledExecutorService executorService;
-   private long leakDetectionThreshold;
+   private final int samplePeriod = Math.max(1, Integer.getInteger("com.zaxxer.hikari.leakDetection.samplePeriod", 16));
+
+   private final ScheduledExecutorService executorService;
+   private final Supplier<? extends Iterable<PoolEntry>> inUse;
+   private final BiConsumer<PoolEntry, ProxyLeakTask> reclaimer;
+   private final long leakReclaimThreshold;
+   private volatile long leakDetectionThreshold;
+   private ScheduledFuture<?> sweepTask;
+   private long sweepPeriodMs;
 
-   ProxyLeakTaskFactory(final long leakDetectionThreshold, final ScheduledExecutorService executorService)
+   ProxyLeakTaskFactory(final long leakDetectionThreshold, final long leakReclaimThreshold, final ScheduledExecutorService executorService,
+                        final Supplier<? extends Iterable<PoolEntry>> inUse, final BiConsumer<PoolEntry, ProxyLeakTask> reclaimer)
    {
       this.executorService = executorService;
-      this.leakDetectionThreshold = leakDetectionThreshold;
+      this.inUse = inUse;
+      this.reclaimer = reclaimer;
+      this.leakReclaimThreshold = leakReclaimThreshold;
+      updateLeakDetectionThreshold(leakDetectionThreshold);
    }
 
    ProxyLeakTask schedule(final PoolEntry poolEntry)
    {
-      return (leakDetectionThreshold == 0) ? ProxyLeakTask.NO_LEAK : scheduleNewTask(poolEntry);
+      if (leakDetectionThreshold == 0 && leakReclaimThreshold == 0) {
+         return ProxyLeakTask.NO_LEAK;
+      }
+
+      ProxyLeakTask task = poolEntry.leakTask;
+      if (task == null) {
+         task = new ProxyLeakTask(poolEntry, leakReclaimThreshold > 0);
+         poolEntry.leakTask = task;
+      }
+
+      task.prepare(samplePeriod == 1 || ThreadLocalRandom.current().nextInt(samplePeriod) == 0);
+      return task;
    }
 
-   void updateLeakDetectionThreshold(final long leakDetectionThreshold)
+   /**
+    * Set the leak detection threshold, starting, rescheduling or stopping the sweep as required.  The sweep runs
+    * twice per the lower of the two thresholds, so a leak is reported or reclaimed at most half a threshold late.
+    *
+    * @param leakDetectionThreshold the threshold in milliseconds, 0 to disable leak detection
+    */
+   synchronized void updateLeakDetectionThreshold(final long leakDetectionThreshold)
    {
       this.leakDetectionThreshold = leakDetectionThreshold;
+
+      final long threshold = leakDetectionThreshold > 0 && leakReclaimThreshold > 0 ? Math.min(leakDetectionThreshold, leakReclaimThreshold) : Math.max(leakDetectionThreshold, leakReclaimThreshold);
+      final long periodMs = threshold > 0 ? Math.max(1L, threshold / 2) : 0L;
+      if (periodMs != sweepPeriodMs) {
+         if (sweepTask != null) {
+            sweepTask.cancel(false);
+            sweepTask = null;
+         }
+
+         sweepPeriodMs = periodMs;
+         if (periodMs > 0) {
+            sweepTask = executorService.scheduleWithFixedDelay(this::sweep, periodMs, periodMs, MILLISECONDS);
+         }
+      }
    }
 
-   private ProxyLeakTask scheduleNewTask(PoolEntry poolEntry) {
-      ProxyLeakTask task = new ProxyLeakTask(poolEntry);
-      task.schedule(executorService, leakDetectionThreshold);
+   /**
+    * Stop the sweep.
+    */
+   synchronized void close()
+   {
+      if (sweepTask != null) {
+         sweepTask.cancel(false);
+         sweepTask = null;
+      }
+      sweepPeriodMs = 0L;
+   }
 
-      return task;
+   private void sweep()
+   {
+      final long threshold = leakDetectionThreshold;
+      for (PoolEntry poolEntry : inUse.get()) {
+         final ProxyLeakTask task = poolEntry.leakTask;
+         if (task != null && task.check(threshold, leakReclaimThreshold)) {
+            reclaimer.accept(poolEntry, task);
+         }
+      }
    }
 }
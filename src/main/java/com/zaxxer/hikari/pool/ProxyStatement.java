@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * This is the proxy class for java.sql.Statement.
@@ -28,10 +29,13 @@ import java.sql.Statement;
  */
 public abstract class ProxyStatement implements Statement
 {
+   private static final AtomicIntegerFieldUpdater<ProxyStatement> CLOSED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(ProxyStatement.class, "closed");
+
    protected final ProxyConnection connection;
    final Statement delegate;
 
-   private boolean isClosed;
+   @SuppressWarnings("unused")
+   private volatile int closed;
    private ResultSet proxyResultSet;
 
    ProxyStatement(ProxyConnection connection, Statement statement)
@@ -61,12 +65,8 @@ public abstract class ProxyStatement implements Statement
    @Override
    public final void close() throws SQLException
    {
-      synchronized (this) {
-         if (isClosed) {
-            return;
-         }
-
-         isClosed = true;
+      if (!CLOSED_UPDATER.compareAndSet(this, 0, 1)) {
+         return;
       }
 
       connection.untrackStatement(delegate);
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.TreeMap;
+
+/**
+ * Assigns connections their retirement times, so that no more than a fixed number of connections retire in
+ * any interval.  Time is divided into intervals of equal length, and each interval has that many slots.  A
+ * connection due to retire takes a slot in the interval it is due in, or failing that in the latest earlier
+ * interval with a free slot, so that it never outlives maxLifetime if that can be helped.  Only when every
+ * interval from now until then is full is it given a slot in a later interval.  A connection that is to retire
+ * as soon as possible, after a soft eviction, takes the first free slot from now on.
+ *
+ * @author Brett Wooldridge
+ */
+final class RetirementScheduler
+{
+   static final long NO_SLOT = Long.MIN_VALUE;
+
+   private final int maxRetirements;
+   private final long intervalMs;
+
+   // the number of slots taken in each interval, by interval number
+   private final TreeMap<Long, Integer> slots = new TreeMap<>();
+
+   RetirementScheduler(final int maxRetirements, final long intervalMs)
+   {
+      this.maxRetirements = maxRetirements;
+      this.intervalMs = intervalMs;
+   }
+
+   /**
+    * Assign a retirement time.
+    *
+    * @param nowMs the current time in milliseconds
+    * @param dueMs the time in milliseconds the connection is due to retire
+    * @param notEarlier true if the connection may not retire before it is due
+    * @return the assigned retirement time in milliseconds, which is at least {@code nowMs}
+    */
+   synchronized long assign(final long nowMs, final long dueMs, final boolean notEarlier)
+   {
+      final long first = Math.floorDiv(nowMs, intervalMs);
+      final long due = Math.max(first, Math.floorDiv(dueMs, intervalMs));
+      slots.headMap(first).clear();
+
+      long interval = due;
+      if (!notEarlier) {
+         while (interval >= first && isFull(interval)) {
+            interval--;
+         }
+      }
+
+      if (interval < first || isFull(interval)) {
+         interval = due + 1;
+         while (isFull(interval)) {
+            interval++;
+         }
+      }
+
+      slots.merge(interval, 1, Integer::sum);
+
+      // keep the connection's offset within its interval, so that the slots of an interval are spread over it
+      final long retireMs = interval * intervalMs + Math.floorMod(dueMs, intervalMs);
+      return Math.max(nowMs, retireMs);
+   }
+
+   /**
+    * Free the slot of a connection that has retired early, or is being assigned another slot.
+    *
+    * @param retireMs the retirement time previously assigned, or {@link #NO_SLOT}
+    */
+   synchronized void release(final long retireMs)
+   {
+      if (retireMs != NO_SLOT) {
+         slots.computeIfPresent(Math.floorDiv(retireMs, intervalMs), (interval, taken) -> taken > 1 ? taken - 1 : null);
+      }
+   }
+
+   private boolean isFull(final long interval)
+   {
+      return slots.getOrDefault(interval, 0) >= maxRetirements;
+   }
+}
@@ -15,26 +15,39 @@
  */
 package com.zaxxer.hikari.util;
 
+import com.zaxxer.hikari.ConnectionPriority;
 import com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import static com.zaxxer.hikari.ConnectionPriority.HIGH;
+import static com.zaxxer.hikari.ConnectionPriority.NORMAL;
 import static com.zaxxer.hikari.util.ClockSource.currentTime;
 import static com.zaxxer.hikari.util.ClockSource.elapsedNanos;
 import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.*;
-import static java.util.concurrent.TimeUnit.MICROSECONDS;
-import static java.util.concurrent.TimeUnit.NANOSECONDS;
-import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static com.zaxxer.hikari.util.ThreadElf.isVirtual;
+import static java.lang.Thread.currentThread;
 
 /**
  * This is a specialized concurrent bag that achieves superior performance
@@ -43,8 +56,21 @@ import static java.util.concurrent.locks.LockSupport.parkNanos;
  * locks, but resorts to scanning a common collection if there are no
  * available items in the ThreadLocal list.  Not-in-use items in the
  * ThreadLocal lists can be "stolen" when the borrowing thread has none
- * of its own.  It is a "lock-less" implementation using a specialized
- * AbstractQueuedLongSynchronizer to manage cross-thread signaling.
+ * of its own.  It is a "lock-less" implementation; a borrower that finds
+ * nothing available enqueues a waiter node, and a thread returning an item
+ * hands it directly to the oldest waiter with a single CAS and an unpark.
+ * Waiters are queued by {@link ConnectionPriority}, and an item is handed
+ * to the oldest waiter of the highest priority.  Optionally, a number of
+ * not-in-use items are reserved for borrowers of HIGH priority.
+ *
+ * A borrow order may be given to the bag, in which case the ThreadLocal
+ * lists are not used, and each borrow scans the whole common collection
+ * for the best available item.
+ *
+ * Virtual threads are usually created per task, so a ThreadLocal list
+ * would almost never be hit and would only generate garbage.  For them
+ * the bag instead uses a small striped cache of recently returned items,
+ * shared by all virtual threads.
  *
  * Note that items that are "borrowed" from the bag are not actually
  * removed from any collection, so garbage collection will not occur
@@ -59,6 +85,9 @@ import static java.util.concurrent.locks.LockSupport.parkNanos;
 public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseable
 {
    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentBag.class);
+   private static final int VIRTUAL_CACHE_PROBES = 4;
+   private static final ThreadLocal<Trampoline> TRAMPOLINE = ThreadLocal.withInitial(Trampoline::new);
+   private static final int MAX_SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
 
    private final CopyOnWriteArrayList<T> sharedList;
    private final boolean weakThreadLocals;
@@ -66,9 +95,15 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
    private final ThreadLocal<List<Object>> threadList;
    private final IBagStateListener listener;
    private final AtomicInteger waiters;
+   private final LongAdder[] stateCounts;
+   private final int stripes;
+   private final AtomicReferenceArray<T> virtualCache;
+   private final int reserved;
+   private final Comparator<? super T> borrowOrder;
+   private final ReentrantLock bulkBorrowLock;
    private volatile boolean closed;
 
-   private final SynchronousQueue<T> handoffQueue;
+   private final ConcurrentLinkedQueue<Waiter>[] waiterQueues;
 
    public interface IConcurrentBagEntry
    {
@@ -93,13 +128,71 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     * @param listener the IBagStateListener to attach to this bag
     */
    public ConcurrentBag(final IBagStateListener listener)
+   {
+      this(listener, 1);
+   }
+
+   /**
+    * Construct a ConcurrentBag with the specified listener, whose shared list is
+    * partitioned into the specified number of stripes.  A borrowing thread scans
+    * its home stripe first and steals from the following stripes only when its
+    * home stripe has nothing available.
+    *
+    * @param listener the IBagStateListener to attach to this bag
+    * @param stripes the number of stripes, 1 (or less) disables striping
+    */
+   public ConcurrentBag(final IBagStateListener listener, final int stripes)
+   {
+      this(listener, stripes, 0);
+   }
+
+   /**
+    * Construct a ConcurrentBag with the specified listener and number of stripes, keeping the
+    * specified number of not-in-use items for borrowers of {@link ConnectionPriority#HIGH}
+    * priority.  Borrowers of a lower priority wait rather than take one of the last
+    * <code>reserved</code> items.
+    *
+    * @param listener the IBagStateListener to attach to this bag
+    * @param stripes the number of stripes, 1 (or less) disables striping
+    * @param reserved the number of not-in-use items reserved for HIGH priority borrowers
+    */
+   public ConcurrentBag(final IBagStateListener listener, final int stripes, final int reserved)
+   {
+      this(listener, stripes, reserved, null);
+   }
+
+   /**
+    * Construct a ConcurrentBag with the specified listener, number of stripes and number of items
+    * reserved for HIGH priority borrowers, that lends its items in the specified order.  Ordering
+    * replaces both the ThreadLocal lists and striping; every borrow that is not handed an item by
+    * a returning thread scans the whole shared list.
+    *
+    * @param listener the IBagStateListener to attach to this bag
+    * @param stripes the number of stripes, 1 (or less) disables striping
+    * @param reserved the number of not-in-use items reserved for HIGH priority borrowers
+    * @param borrowOrder a comparator ordering the item to borrow first, or null for thread affinity
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public ConcurrentBag(final IBagStateListener listener, final int stripes, final int reserved, final Comparator<? super T> borrowOrder)
    {
       this.listener = listener;
+      this.stripes = Math.max(1, stripes);
+      this.reserved = Math.max(0, reserved);
+      this.borrowOrder = borrowOrder;
+      this.bulkBorrowLock = new ReentrantLock(true);
       this.weakThreadLocals = useWeakThreadLocals();
 
-      this.handoffQueue = new SynchronousQueue<>(true);
+      this.waiterQueues = new ConcurrentLinkedQueue[ConnectionPriority.values().length];
+      for (int i = 0; i < waiterQueues.length; i++) {
+         waiterQueues[i] = new ConcurrentLinkedQueue<>();
+      }
       this.waiters = new AtomicInteger();
+      this.stateCounts = new LongAdder[STATE_IN_USE - STATE_RESERVED + 1];
+      for (int i = 0; i < stateCounts.length; i++) {
+         stateCounts[i] = new LongAdder();
+      }
       this.sharedList = new CopyOnWriteArrayList<>();
+      this.virtualCache = new AtomicReferenceArray<>(virtualCacheSize());
       if (weakThreadLocals) {
          this.threadList = ThreadLocal.withInitial(() -> new ArrayList<>(16));
       }
@@ -108,84 +201,520 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
       }
    }
 
+   /**
+    * The method will borrow a BagEntry from the bag at {@link ConnectionPriority#NORMAL}
+    * priority, blocking for the specified timeout if none are available.
+    *
+    * @param timeout how long to wait before giving up, in units of unit
+    * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @return a borrowed instance from the bag or null if a timeout occurs
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public T borrow(final long timeout, final TimeUnit timeUnit) throws InterruptedException
+   {
+      return borrow(timeout, timeUnit, NORMAL);
+   }
+
    /**
     * The method will borrow a BagEntry from the bag, blocking for the
     * specified timeout if none are available.
     *
     * @param timeout how long to wait before giving up, in units of unit
     * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @param priority the priority of the borrower
     * @return a borrowed instance from the bag or null if a timeout occurs
     * @throws InterruptedException if interrupted while waiting
     */
-   public T borrow(long timeout, final TimeUnit timeUnit) throws InterruptedException
+   public T borrow(final long timeout, final TimeUnit timeUnit, final ConnectionPriority priority) throws InterruptedException
    {
-      // Try the thread-local list first
-      final List<Object> list = threadList.get();
-      for (int i = list.size() - 1; i >= 0; i--) {
-         final Object entry = list.remove(i);
-         @SuppressWarnings("unchecked")
-         final T bagEntry = weakThreadLocals ? ((WeakReference<T>) entry).get() : (T) entry;
-         if (bagEntry != null && bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
-            return bagEntry;
-         }
+      return borrow(timeout, timeUnit, priority, null);
+   }
+
+   /**
+    * The method will borrow a BagEntry from the bag, preferring an available entry that matches the
+    * specified predicate over the entry that would otherwise be borrowed, and blocking for the
+    * specified timeout if none are available.  Looking for a preferred entry scans the shared list.
+    *
+    * @param timeout how long to wait before giving up, in units of unit
+    * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @param priority the priority of the borrower
+    * @param preferred a predicate matching the entries to prefer, or null for no preference
+    * @return a borrowed instance from the bag or null if a timeout occurs
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public T borrow(final long timeout, final TimeUnit timeUnit, final ConnectionPriority priority, final Predicate<? super T> preferred) throws InterruptedException
+   {
+      final T localEntry = pollPreferredOrLocal(priority, preferred);
+      if (localEntry != null) {
+         return localEntry;
       }
 
-      // Otherwise, scan the shared list ... then poll the handoff queue
+      // Otherwise, scan the shared list ... then wait in the handoff queue
       final int waiting = waiters.incrementAndGet();
       try {
+         final T sharedEntry = scan(priority);
+         if (sharedEntry != null) {
+            // If we may have stolen another waiter's connection, request another bag add.
+            if (waiting > 1) {
+               listener.addBagItem(waiting - 1);
+            }
+            return sharedEntry;
+         }
+
+         listener.addBagItem(waiting);
+
+         return await(timeUnit.toNanos(timeout), priority);
+      }
+      finally {
+         waiters.decrementAndGet();
+      }
+   }
+
+   /**
+    * Borrow a BagEntry from the bag only if one is available now.  Unlike <code>borrow(0, ...)</code>, the caller
+    * is never counted or enqueued as a waiter, and no item is requested from the listener, so that a borrower
+    * about to be turned away costs the bag no more than a scan.
+    *
+    * @param priority the priority of the borrower
+    * @param preferred a predicate matching the entries to prefer, or null for no preference
+    * @return a borrowed instance from the bag, or null if none is available
+    */
+   public T tryBorrow(final ConnectionPriority priority, final Predicate<? super T> preferred)
+   {
+      final T localEntry = pollPreferredOrLocal(priority, preferred);
+      return localEntry != null ? localEntry : scan(priority);
+   }
+
+   /**
+    * Borrow the specified number of BagEntry items from the bag, all or nothing, blocking for the
+    * specified timeout until enough are available.  Bulk borrowers take turns in FIFO order, and
+    * only one at a time accumulates entries, so that two bulk borrowers can never each hold part of
+    * the entries the other is waiting for.  The caller must not already hold entries from this bag,
+    * and <code>count</code> should not exceed the number of entries the bag can hold.
+    * <p>
+    * Each entry is offered to the acceptor as it is borrowed.  If the acceptor rejects it, the
+    * acceptor takes responsibility for the entry (for example by removing it) and another is
+    * borrowed in its place.
+    *
+    * @param count the number of entries to borrow
+    * @param timeout how long to wait before giving up, in units of unit
+    * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @param acceptor a predicate that accepts (or takes over) each borrowed entry
+    * @return a list of <code>count</code> borrowed instances, or null if a timeout occurs
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public List<T> borrow(final int count, final long timeout, final TimeUnit timeUnit, final Predicate<? super T> acceptor) throws InterruptedException
+   {
+      final long startTime = currentTime();
+      final long timeoutNs = timeUnit.toNanos(timeout);
+      if (!bulkBorrowLock.tryLock(timeoutNs, TimeUnit.NANOSECONDS)) {
+         return null;
+      }
+
+      final List<T> borrowed = new ArrayList<>(count);
+      boolean complete = false;
+      try {
+         while (borrowed.size() < count) {
+            final T bagEntry = borrow(Math.max(0L, timeoutNs - elapsedNanos(startTime)), TimeUnit.NANOSECONDS);
+            if (bagEntry == null) {
+               return null;
+            }
+
+            if (acceptor.test(bagEntry)) {
+               borrowed.add(bagEntry);
+            }
+         }
+
+         complete = true;
+         return borrowed;
+      }
+      finally {
+         if (!complete) {
+            borrowed.forEach(this::requite);
+         }
+         bulkBorrowLock.unlock();
+      }
+   }
+
+   /**
+    * Borrow a BagEntry from the bag without blocking.  If none is available the returned
+    * future is enqueued as a waiter, and is completed by the thread that next returns (or
+    * adds) an entry to the bag.  There is no timeout; a caller that gives up must complete
+    * the future itself (for example with an exception), which cancels its waiter.
+    * If an entry was handed to the future before that, the caller's completion fails and
+    * the entry goes to the next waiter.
+    *
+    * @return a future that is completed with a borrowed instance from the bag
+    */
+   public CompletableFuture<T> borrowAsync()
+   {
+      final CompletableFuture<T> future = new CompletableFuture<>();
+
+      final T localEntry = mayTake(NORMAL) ? pollLocal() : null;
+      if (localEntry != null) {
+         future.complete(localEntry);
+         return future;
+      }
+
+      final int waiting = waiters.incrementAndGet();
+      final Waiter waiter = new Waiter(future, NORMAL);
+      future.whenComplete((bagEntry, throwable) -> {
+         waiters.decrementAndGet();
+         if (throwable != null) {
+            waiter.cancel();
+         }
+      });
+
+      final T sharedEntry = scan(NORMAL);
+      if (sharedEntry != null) {
+         if (waiting > 1) {
+            listener.addBagItem(waiting - 1);
+         }
+         waiter.cancel();
+         future.complete(sharedEntry);
+         return future;
+      }
+
+      listener.addBagItem(waiting);
+      waiterQueues[waiter.priority].offer(waiter);
+
+      // As in await(), an entry returned after our scan but before we were enqueued would not have been handed to us
+      final T bagEntry = scan(NORMAL);
+      if (bagEntry != null) {
+         if (waiter.cancel()) {
+            future.complete(bagEntry);
+         }
+         else {
+            requite(bagEntry);
+         }
+      }
+
+      return future;
+   }
+
+   /**
+    * Try a preferred entry from the shared list, then the thread-local list.
+    *
+    * @return an entry transitioned to IN_USE, or null
+    */
+   private T pollPreferredOrLocal(final ConnectionPriority priority, final Predicate<? super T> preferred)
+   {
+      if (!mayTake(priority)) {
+         return null;
+      }
+
+      if (preferred != null) {
          for (T bagEntry : sharedList) {
-            if (bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
-               // If we may have stolen another waiter's connection, request another bag add.
-               if (waiting > 1) {
-                  listener.addBagItem(waiting - 1);
-               }
+            if (preferred.test(bagEntry) && transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
                return bagEntry;
             }
          }
+      }
 
-         listener.addBagItem(waiting);
+      return pollLocal();
+   }
 
-         timeout = timeUnit.toNanos(timeout);
-         do {
-            final long start = currentTime();
-            final T bagEntry = handoffQueue.poll(timeout, NANOSECONDS);
-            if (bagEntry == null || bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+   /**
+    * Try the thread-local list (or for virtual threads, the virtual cache).
+    *
+    * @return an entry transitioned to IN_USE, or null
+    */
+   private T pollLocal()
+   {
+      if (borrowOrder != null) {
+         return null;
+      }
+
+      if (isVirtual(currentThread())) {
+         final int mask = virtualCache.length() - 1;
+         final int slot = ThreadLocalRandom.current().nextInt();
+         for (int i = 0; i < VIRTUAL_CACHE_PROBES; i++) {
+            final T bagEntry = virtualCache.get((slot + i) & mask);
+            if (bagEntry != null && virtualCache.compareAndSet((slot + i) & mask, bagEntry, null) && transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
                return bagEntry;
             }
+         }
+      }
+      else {
+         final List<Object> list = threadList.get();
+         for (int i = list.size() - 1; i >= 0; i--) {
+            final Object entry = list.remove(i);
+            @SuppressWarnings("unchecked")
+            final T bagEntry = weakThreadLocals ? ((WeakReference<T>) entry).get() : (T) entry;
+            if (bagEntry != null && transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+               return bagEntry;
+            }
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Enqueue a waiter node and park until an entry is handed to it, or the timeout elapses.
+    *
+    * @param timeoutNs the timeout in nanoseconds
+    * @param priority the priority of the borrower
+    * @return an IN_USE entry, or null if the timeout elapsed
+    * @throws InterruptedException if interrupted while waiting
+    */
+   @SuppressWarnings("unchecked")
+   private T await(final long timeoutNs, final ConnectionPriority priority) throws InterruptedException
+   {
+      final Waiter waiter = new Waiter(currentThread(), priority);
+      final ConcurrentLinkedQueue<Waiter> waiterQueue = waiterQueues[waiter.priority];
+      waiterQueue.offer(waiter);
+
+      // An entry returned after our scan, but before we were enqueued, would not have been handed to us
+      final T bagEntry = scan(priority);
+      if (bagEntry != null) {
+         if (waiter.cancel()) {
+            return bagEntry;
+         }
+
+         // a giver beat us to it, return the entry we found and keep the one handed to us
+         requite(bagEntry);
+         return (T) waiter.entry;
+      }
+
+      // The head of the queue is next in line, spin briefly before paying for a park/unpark
+      if (waiterQueue.peek() == waiter) {
+         for (int i = 0; i < MAX_SPINS && waiter.entry == null; i++) {
+            Thread.yield();
+         }
+      }
+
+      final long start = currentTime();
+      long remaining = timeoutNs;
+      while (waiter.entry == null && remaining > 10_000) {
+         LockSupport.parkNanos(this, remaining);
+         if (Thread.interrupted()) {
+            if (waiter.cancel()) {
+               throw new InterruptedException();
+            }
 
-            timeout -= elapsedNanos(start);
-         } while (timeout > 10_000);
+            currentThread().interrupt();
+            break;
+         }
+         remaining = timeoutNs - elapsedNanos(start);
+      }
 
+      if (waiter.entry == null && waiter.cancel()) {
          return null;
       }
-      finally {
-         waiters.decrementAndGet();
+
+      return (T) waiter.entry;
+   }
+
+   /**
+    * Hand a NOT_IN_USE entry directly to the oldest waiting borrower of the highest priority,
+    * if there is one.  The entry is claimed (set IN_USE) on behalf of the waiter before it is
+    * handed over, so that borrowers scanning the shared list cannot barge in front of a waiter.
+    * Waiters below HIGH priority are passed over while the entry is one of the reserved ones.
+    *
+    * @param bagEntry the entry to hand off
+    * @return true if the entry was handed off, or is no longer NOT_IN_USE, false if there was
+    *         no waiter to hand it to
+    */
+   private boolean handoff(final T bagEntry)
+   {
+      while (waiters.get() > 0) {
+         if (!transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return true;
+         }
+
+         // the claimed entry no longer counts as NOT_IN_USE, so the reserved entries are the remaining ones
+         final int eligible = reserved == 0 || getCount(STATE_NOT_IN_USE) >= reserved ? waiterQueues.length : 1;
+         for (int i = 0; i < eligible; i++) {
+            final ConcurrentLinkedQueue<Waiter> waiterQueue = waiterQueues[i];
+            for (Waiter waiter = waiterQueue.poll(); waiter != null; waiter = waiterQueue.poll()) {
+               if (waiter.complete(bagEntry)) {
+                  if (waiter.future != null) {
+                     deliver(waiter.future, bagEntry);
+                  }
+                  return true;
+               }
+            }
+         }
+
+         transition(bagEntry, STATE_IN_USE, STATE_NOT_IN_USE);
+
+         // A borrower enqueued after our poll will find the entry when it re-scans.  A racing handoff
+         // may also have released an entry we counted as claimed, so re-evaluate the reserve.
+         if (!hasWaiters(mayTake(NORMAL) ? waiterQueues.length : 1)) {
+            break;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Determine whether a borrower of the specified priority may take a NOT_IN_USE entry,
+    * without dipping into the entries reserved for HIGH priority borrowers.
+    */
+   private boolean mayTake(final ConnectionPriority priority)
+   {
+      return reserved == 0 || priority == HIGH || getCount(STATE_NOT_IN_USE) > reserved;
+   }
+
+   private boolean hasWaiters(final int priorities)
+   {
+      for (int i = 0; i < priorities; i++) {
+         if (!waiterQueues[i].isEmpty()) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Complete an async waiter's future with a handed-off entry.  The future's dependent stages
+    * run on this thread and may themselves return an entry to the bag (and so complete another
+    * future), so completions are trampolined rather than nested, keeping the stack flat however
+    * many futures are served in a chain.
+    *
+    * @param future the waiter's future
+    * @param bagEntry the IN_USE entry handed to it
+    */
+   private void deliver(final CompletableFuture<Object> future, final T bagEntry)
+   {
+      final Trampoline trampoline = TRAMPOLINE.get();
+      trampoline.pending.add(() -> {
+         // the future may have been completed (timed out) by its owner since it was handed the entry
+         if (!future.complete(bagEntry)) {
+            requite(bagEntry);
+         }
+      });
+
+      if (!trampoline.running) {
+         trampoline.running = true;
+         try {
+            for (Runnable completion = trampoline.pending.poll(); completion != null; completion = trampoline.pending.poll()) {
+               completion.run();
+            }
+         }
+         finally {
+            trampoline.running = false;
+         }
+      }
+   }
+
+   private T scan(final ConnectionPriority priority)
+   {
+      if (!mayTake(priority)) {
+         return null;
+      }
+
+      if (borrowOrder != null) {
+         return scanOrdered();
+      }
+
+      return stripes > 1 ? scanStriped() : scanShared();
+   }
+
+   private T scanShared()
+   {
+      for (T bagEntry : sharedList) {
+         if (transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return bagEntry;
+         }
       }
+
+      return null;
+   }
+
+   /**
+    * Scan the whole shared list for the first available entry in borrow order, and claim it.  If
+    * another thread claims it first, scan again.
+    *
+    * @return a bag entry transitioned to IN_USE, or null if none was available
+    */
+   private T scanOrdered()
+   {
+      while (true) {
+         T best = null;
+         for (T bagEntry : sharedList) {
+            if (bagEntry.getState() == STATE_NOT_IN_USE && (best == null || borrowOrder.compare(bagEntry, best) < 0)) {
+               best = bagEntry;
+            }
+         }
+
+         if (best == null || transition(best, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return best;
+         }
+      }
+   }
+
+   /**
+    * Scan the shared list starting at the calling thread's home stripe, wrapping
+    * around to steal from the other stripes.  Stripe boundaries are derived from
+    * the current size of the list, so they shift as entries are added or removed.
+    *
+    * @return a bag entry transitioned to IN_USE, or null if none was available
+    */
+   private T scanStriped()
+   {
+      final int size = sharedList.size();
+      // Thread.getId() is deprecated, the identity hash of the thread is as stable for the thread's life
+      final int home = (int) (((System.identityHashCode(currentThread()) * 0x9E3779B97F4A7C15L) >>> 33) % stripes);
+      int start = (int) ((long) home * size / stripes);
+
+      ListIterator<T> iterator;
+      try {
+         iterator = sharedList.listIterator(start);
+      }
+      catch (IndexOutOfBoundsException e) {
+         // the list shrank underneath us
+         start = 0;
+         iterator = sharedList.listIterator();
+      }
+
+      while (iterator.hasNext()) {
+         final T bagEntry = iterator.next();
+         if (transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return bagEntry;
+         }
+      }
+
+      iterator = sharedList.listIterator();
+      for (int i = 0; i < start && iterator.hasNext(); i++) {
+         final T bagEntry = iterator.next();
+         if (transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return bagEntry;
+         }
+      }
+
+      return null;
    }
 
    /**
     * This method will return a borrowed object to the bag.  Objects
     * that are borrowed from the bag but never "requited" will result
-    * in a memory leak.
+    * in a memory leak.  An object that was removed from the bag while
+    * it was borrowed stays removed.
     *
     * @param bagEntry the value to return to the bag
     * @throws NullPointerException if value is null
-    * @throws IllegalStateException if the bagEntry was not borrowed from the bag
     */
    public void requite(final T bagEntry)
    {
-      bagEntry.setState(STATE_NOT_IN_USE);
-
-      for (int i = 0; waiters.get() > 0; i++) {
-         if (bagEntry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(bagEntry)) {
-            return;
-         }
-         else if ((i & 0xff) == 0xff) {
-            parkNanos(MICROSECONDS.toNanos(10));
-         }
-         else {
-            Thread.yield();
+      if (!transition(bagEntry, STATE_IN_USE, STATE_NOT_IN_USE)) {
+         // an entry removed while borrowed (evicted, or aborted at shutdown) has left the bag for good
+         if (bagEntry.getState() != STATE_REMOVED) {
+            LOGGER.warn("Attempt to requite an object to the bag that was not borrowed: {}", bagEntry);
          }
+         return;
+      }
+
+      if (handoff(bagEntry) || borrowOrder != null) {
+         return;
+      }
+
+      if (isVirtual(currentThread())) {
+         virtualCache.lazySet(ThreadLocalRandom.current().nextInt() & (virtualCache.length() - 1), bagEntry);
+         return;
       }
 
       final List<Object> threadLocalList = threadList.get();
@@ -206,12 +735,10 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
          throw new IllegalStateException("ConcurrentBag has been closed, ignoring add()");
       }
 
+      stateCount(bagEntry.getState()).increment();
       sharedList.add(bagEntry);
 
-      // spin until a thread takes it or none are waiting
-      while (waiters.get() > 0 && bagEntry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(bagEntry)) {
-         Thread.yield();
-      }
+      handoff(bagEntry);
    }
 
    /**
@@ -225,7 +752,8 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public boolean remove(final T bagEntry)
    {
-      if (!bagEntry.compareAndSet(STATE_IN_USE, STATE_REMOVED) && !bagEntry.compareAndSet(STATE_RESERVED, STATE_REMOVED) && !closed) {
+      final boolean transitioned = transition(bagEntry, STATE_IN_USE, STATE_REMOVED) || transition(bagEntry, STATE_RESERVED, STATE_REMOVED);
+      if (!transitioned && !closed) {
          LOGGER.warn("Attempt to remove an object from the bag that was not borrowed or reserved: {}", bagEntry);
          return false;
       }
@@ -235,7 +763,21 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
          LOGGER.warn("Attempt to remove an object from the bag that does not exist: {}", bagEntry);
       }
 
-      threadList.get().remove(bagEntry);
+      if (transitioned) {
+         stateCount(STATE_REMOVED).decrement();
+      }
+      else if (removed) {
+         // closed bag, the entry left the bag in whatever state it was in
+         stateCount(bagEntry.getState()).decrement();
+      }
+
+      for (int i = 0; i < virtualCache.length(); i++) {
+         virtualCache.compareAndSet(i, bagEntry, null);
+      }
+
+      if (!isVirtual(currentThread())) {
+         threadList.get().remove(bagEntry);
+      }
 
       return removed;
    }
@@ -293,7 +835,7 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public boolean reserve(final T bagEntry)
    {
-      return bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED);
+      return transition(bagEntry, STATE_NOT_IN_USE, STATE_RESERVED);
    }
 
    /**
@@ -305,11 +847,8 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
    @SuppressWarnings("SpellCheckingInspection")
    public void unreserve(final T bagEntry)
    {
-      if (bagEntry.compareAndSet(STATE_RESERVED, STATE_NOT_IN_USE)) {
-         // spin until a thread takes it or none are waiting
-         while (waiters.get() > 0 && !handoffQueue.offer(bagEntry)) {
-            Thread.yield();
-         }
+      if (transition(bagEntry, STATE_RESERVED, STATE_NOT_IN_USE)) {
+         handoff(bagEntry);
       }
       else {
          LOGGER.warn("Attempt to relinquish an object to the bag that was not reserved: {}", bagEntry);
@@ -328,28 +867,24 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
    }
 
    /**
-    * Get a count of the number of items in the specified state at the time of this call.
+    * Get a count of the number of items in the specified state at the time of this call.  Counts
+    * are maintained on every state transition made through the bag, so this is a constant-time
+    * operation rather than a scan of the bag.
     *
     * @param state the state of the items to count
     * @return a count of how many items in the bag are in the specified state
     */
    public int getCount(final int state)
    {
-      int count = 0;
-      for (IConcurrentBagEntry e : sharedList) {
-         if (e.getState() == state) {
-            count++;
-         }
-      }
-      return count;
+      // a transition decrements the old state before incrementing the new one, so a racing reader can see -1
+      return (int) Math.max(0L, stateCount(state).sum());
    }
 
    public int[] getStateCounts()
    {
       final int[] states = new int[6];
-      for (IConcurrentBagEntry e : sharedList) {
-         ++states[e.getState()];
-      }
+      states[STATE_NOT_IN_USE] = getCount(STATE_NOT_IN_USE);
+      states[STATE_IN_USE] = getCount(STATE_IN_USE);
       states[4] = sharedList.size();
       states[5] = waiters.get();
 
@@ -371,6 +906,104 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
       sharedList.forEach(entry -> LOGGER.info(entry.toString()));
    }
 
+   /**
+    * Transition the state of an entry, keeping the per-state counts in step.  All state changes
+    * of entries in the bag must go through this method.
+    *
+    * @param bagEntry the entry to transition
+    * @param expectState the state the entry is expected to be in
+    * @param newState the state to transition the entry to
+    * @return true if the transition was made, false if the entry was not in the expected state
+    */
+   private boolean transition(final T bagEntry, final int expectState, final int newState)
+   {
+      if (bagEntry.compareAndSet(expectState, newState)) {
+         stateCount(expectState).decrement();
+         stateCount(newState).increment();
+         return true;
+      }
+
+      return false;
+   }
+
+   private LongAdder stateCount(final int state)
+   {
+      return stateCounts[state - STATE_RESERVED];
+   }
+
+   /**
+    * A borrower waiting for an entry, either a parked thread or a future.  The entry field moves
+    * exactly once from null to either a handed-off entry (by a giver) or CANCELLED (by the waiter
+    * on timeout).  A cancelled waiter is left in its queue, rather than removed from the middle of
+    * it, and is discarded by the next giver that polls it.
+    */
+   private static final class Waiter
+   {
+      private static final Object CANCELLED = new Object();
+      private static final AtomicReferenceFieldUpdater<Waiter, Object> ENTRY_UPDATER = AtomicReferenceFieldUpdater.newUpdater(Waiter.class, Object.class, "entry");
+
+      private final Thread thread;
+      private final CompletableFuture<Object> future;
+      private final int priority;
+      private volatile Object entry;
+
+      Waiter(final Thread thread, final ConnectionPriority priority)
+      {
+         this.thread = thread;
+         this.future = null;
+         this.priority = priority.ordinal();
+      }
+
+      @SuppressWarnings("unchecked")
+      Waiter(final CompletableFuture<?> future, final ConnectionPriority priority)
+      {
+         this.thread = null;
+         this.future = (CompletableFuture<Object>) future;
+         this.priority = priority.ordinal();
+      }
+
+      /**
+       * Hand an entry to this waiter.  A future waiter is not completed here, see deliver().
+       *
+       * @return false if the waiter has given up, in which case the entry still belongs to the giver
+       */
+      boolean complete(final Object bagEntry)
+      {
+         if (!ENTRY_UPDATER.compareAndSet(this, null, bagEntry)) {
+            return false;
+         }
+
+         if (thread != null) {
+            LockSupport.unpark(thread);
+         }
+         return true;
+      }
+
+      boolean cancel()
+      {
+         return ENTRY_UPDATER.compareAndSet(this, null, CANCELLED);
+      }
+   }
+
+   private static final class Trampoline
+   {
+      final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+      boolean running;
+   }
+
+   /**
+    * Size the virtual thread cache at the number of CPUs, rounded up to a power of two.
+    */
+   private static int virtualCacheSize()
+   {
+      final int cpus = Runtime.getRuntime().availableProcessors();
+      int size = 2;
+      while (size < cpus) {
+         size <<= 1;
+      }
+      return size;
+   }
+
    /**
     * Determine whether to use WeakReferences based on whether there is a
     * custom ClassLoader implementation sitting between this class and the
@@ -52,9 +52,12 @@ public final class JavassistProxyFactory
          genDirectory = args[0];
       }
 
-      // Cast is not needed for these
-      String methodBody = "{ try { return delegate.method($$); } catch (SQLException e) { throw checkException(e); } }";
+      // A connection reclaimed as leaked is closed by the first call after the reclamation
+      String methodBody = "{ try { checkReclaimed(); return delegate.method($$); } catch (SQLException e) { throw checkException(e); } }";
       generateProxyClass(Connection.class, ProxyConnection.class.getName(), methodBody);
+
+      // Cast is not needed for these
+      methodBody = "{ try { return delegate.method($$); } catch (SQLException e) { throw checkException(e); } }";
       generateProxyClass(Statement.class, ProxyStatement.class.getName(), methodBody);
       generateProxyClass(ResultSet.class, ProxyResultSet.class.getName(), methodBody);
       generateProxyClass(DatabaseMetaData.class, ProxyDatabaseMetaData.class.getName(), methodBody);
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Thread related helpers.  This is the baseline implementation, which looks up
+ * {@code Thread.isVirtual()} reflectively so that it works on any JVM; a
+ * direct-call implementation is provided for Java 21+ in the multi-release
+ * overlay (META-INF/versions/21).
+ *
+ * @author Brett Wooldridge
+ */
+public final class ThreadElf
+{
+   private static final MethodHandle IS_VIRTUAL;
+
+   static
+   {
+      MethodHandle isVirtual;
+      try {
+         isVirtual = MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+      }
+      catch (ReflectiveOperationException | SecurityException e) {
+         isVirtual = null;
+      }
+      IS_VIRTUAL = isVirtual;
+   }
+
+   private ThreadElf()
+   {
+      // non-constructable
+   }
+
+   /**
+    * Determine whether the specified thread is a virtual thread.
+    *
+    * @param thread the thread to check
+    * @return true if the thread is a virtual thread, false if it is a platform
+    *         thread or the JVM does not support virtual threads
+    */
+   public static boolean isVirtual(final Thread thread)
+   {
+      if (IS_VIRTUAL == null) {
+         return false;
+      }
+
+      try {
+         return (boolean) IS_VIRTUAL.invokeExact(thread);
+      }
+      catch (Throwable e) {
+         return false;
+      }
+   }
+}
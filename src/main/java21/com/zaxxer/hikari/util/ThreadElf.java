@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.util;
+
+/**
+ * Thread related helpers, Java 21+ implementation.
+ *
+ * @author Brett Wooldridge
+ */
+public final class ThreadElf
+{
+   private ThreadElf()
+   {
+      // non-constructable
+   }
+
+   /**
+    * Determine whether the specified thread is a virtual thread.
+    *
+    * @param thread the thread to check
+    * @return true if the thread is a virtual thread
+    */
+   public static boolean isVirtual(final Thread thread)
+   {
+      return thread.isVirtual();
+   }
+}
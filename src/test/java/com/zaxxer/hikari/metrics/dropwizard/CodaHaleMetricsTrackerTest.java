@@ -33,7 +33,12 @@ public class CodaHaleMetricsTrackerTest
       verify(mockMetricRegistry).remove("mypool.pool.Wait");
       verify(mockMetricRegistry).remove("mypool.pool.Usage");
       verify(mockMetricRegistry).remove("mypool.pool.ConnectionCreation");
+      verify(mockMetricRegistry).remove("mypool.pool.RetirementShift");
       verify(mockMetricRegistry).remove("mypool.pool.ConnectionTimeoutRate");
+      verify(mockMetricRegistry).remove("mypool.pool.ConnectionRejectedRate");
+      verify(mockMetricRegistry).remove("mypool.pool.ConnectionLeakReclaimedRate");
+      verify(mockMetricRegistry).remove("mypool.pool.LabelAffinityHitRate");
+      verify(mockMetricRegistry).remove("mypool.pool.LabelAffinityMissRate");
       verify(mockMetricRegistry).remove("mypool.pool.TotalConnections");
       verify(mockMetricRegistry).remove("mypool.pool.IdleConnections");
       verify(mockMetricRegistry).remove("mypool.pool.ActiveConnections");
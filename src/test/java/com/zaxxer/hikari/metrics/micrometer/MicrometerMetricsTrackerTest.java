@@ -27,6 +27,13 @@ public class MicrometerMetricsTrackerTest
       Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.usage").tag("pool", "mypool").timer());
       Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.creation").tag("pool", "mypool").timer());
       Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.timeout").tag("pool", "mypool").counter());
+      Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.label.hit").tag("pool", "mypool").counter());
+      Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.label.miss").tag("pool", "mypool").counter());
+
+      testee.recordConnectionRetirementShiftMillis(500L);
+      testee.recordConnectionRetirementShiftMillis(-200L);
+      Assert.assertEquals(500.0, mockMeterRegistry.find("hikaricp.connections.retirement.shift").tags("pool", "mypool", "direction", "later").summary().totalAmount(), 0.0);
+      Assert.assertEquals(200.0, mockMeterRegistry.find("hikaricp.connections.retirement.shift").tags("pool", "mypool", "direction", "earlier").summary().totalAmount(), 0.0);
       Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections").tag("pool", "mypool").gauge());
       Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.idle").tag("pool", "mypool").gauge());
       Assert.assertNotNull(mockMeterRegistry.find("hikaricp.connections.active").tag("pool", "mypool").gauge());
@@ -206,17 +206,30 @@ public class PrometheusMetricsTrackerTest
    public void testCloseMethod()
    {
       String[] labelValues = {"testPool"};
+      String[] leakLabelNames = {POOL_LABEL_NAME, "callsite"};
+      String[] leakLabelValues = {"testPool", "com.example.Dao.find(Dao.java:42)"};
       PrometheusMetricsTrackerFactory prometheusFactory = new PrometheusMetricsTrackerFactory(defaultCollectorRegistry);
       IMetricsTracker prometheusTracker = prometheusFactory.create("testPool", new StubPoolStats(0));
 
       prometheusTracker.recordConnectionTimeout();
+      prometheusTracker.recordConnectionRejected();
+      prometheusTracker.recordConnectionLeakReclaimed("com.example.Dao.find(Dao.java:42)");
       prometheusTracker.recordConnectionAcquiredNanos(42L);
       prometheusTracker.recordConnectionUsageMillis(111L);
       prometheusTracker.recordConnectionCreatedMillis(101L);
+      prometheusTracker.recordLabelAffinityHit();
+      prometheusTracker.recordLabelAffinityMiss();
+      prometheusTracker.recordConnectionRetirementShiftMillis(-250L);
 
       assertThat(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_timeout_total", LABEL_NAMES, labelValues),
          is(1.0));
+      assertThat(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_connection_rejected_total", LABEL_NAMES, labelValues),
+         is(1.0));
+      assertThat(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_connection_leak_reclaimed_total", leakLabelNames, leakLabelValues),
+         is(1.0));
       assertThat(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_acquired_nanos_sum", LABEL_NAMES, labelValues),
          is(42.0));
@@ -226,6 +239,15 @@ public class PrometheusMetricsTrackerTest
       assertThat(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_creation_millis_sum", LABEL_NAMES, labelValues),
          is(101.0));
+      assertThat(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_connection_retirement_shift_millis_sum", LABEL_NAMES, labelValues),
+         is(-250.0));
+      assertThat(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_label_affinity_hit_total", LABEL_NAMES, labelValues),
+         is(1.0));
+      assertThat(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_label_affinity_miss_total", LABEL_NAMES, labelValues),
+         is(1.0));
       assertThat(defaultCollectorRegistry.getSampleValue(
          "hikaricp_active_connections", LABEL_NAMES, labelValues),
          is(0.0));
@@ -249,12 +271,22 @@ public class PrometheusMetricsTrackerTest
 
       assertNull(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_timeout_total", LABEL_NAMES, labelValues));
+      assertNull(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_connection_rejected_total", LABEL_NAMES, labelValues));
+      assertNull(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_connection_leak_reclaimed_total", leakLabelNames, leakLabelValues));
       assertNull(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_acquired_nanos_sum", LABEL_NAMES, labelValues));
       assertNull(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_usage_millis_sum", LABEL_NAMES, labelValues));
       assertNull(defaultCollectorRegistry.getSampleValue(
          "hikaricp_connection_creation_millis_sum", LABEL_NAMES, labelValues));
+      assertNull(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_connection_retirement_shift_millis_sum", LABEL_NAMES, labelValues));
+      assertNull(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_label_affinity_hit_total", LABEL_NAMES, labelValues));
+      assertNull(defaultCollectorRegistry.getSampleValue(
+         "hikaricp_label_affinity_miss_total", LABEL_NAMES, labelValues));
       assertNull(defaultCollectorRegistry.getSampleValue(
          "hikaricp_active_connections", LABEL_NAMES, labelValues));
       assertNull(defaultCollectorRegistry.getSampleValue(
@@ -473,7 +473,8 @@ public class StubPreparedStatement extends StubStatement implements PreparedStat
     @Override
     public boolean execute() throws SQLException
     {
-        return false;
+        // like a Statement, reach the connection so that a dead one is detected
+        return super.execute(null);
     }
 
     /** {@inheritDoc} */
@@ -34,6 +34,7 @@ public class StubStatement implements Statement
    public static volatile boolean oldDriver;
 
    private static volatile long simulatedQueryTime;
+   private static volatile long simulatedCloseTime;
    private boolean closed;
    private Connection connection;
 
@@ -45,6 +46,10 @@ public class StubStatement implements Statement
       simulatedQueryTime = time;
    }
 
+   public static void setSimulatedCloseTime(long time) {
+      simulatedCloseTime = time;
+   }
+
    /** {@inheritDoc} */
    @SuppressWarnings("unchecked")
    @Override
@@ -84,6 +89,9 @@ public class StubStatement implements Statement
    @Override
    public void close() throws SQLException
    {
+      if (simulatedCloseTime > 0) {
+         quietlySleep(simulatedCloseTime);
+      }
       closed = true;
    }
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.PoolBase.NopMetricsTrackerDelegate;
+import com.zaxxer.hikari.util.ClockSource;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class AdaptivePoolSizeTest
+{
+   @Test
+   public void testAdditiveIncreaseMultiplicativeDecrease()
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(4);
+      config.setMaximumPoolSize(20);
+
+      final AdaptivePoolSizer sizer = new AdaptivePoolSizer(config);
+      sizer.wrap(new NopMetricsTrackerDelegate());
+
+      // steady state, no demand
+      for (int i = 0; i < 5; i++) {
+         recordUsage(sizer, 5);
+         assertEquals(20, sizer.update(20, 0));
+      }
+
+      // the database slows down
+      recordUsage(sizer, 50);
+      assertEquals(15, sizer.update(20, 10));
+      recordUsage(sizer, 50);
+      assertEquals(11, sizer.update(15, 10));
+      for (int i = 0; i < 5; i++) {
+         recordUsage(sizer, 50);
+         sizer.update(11, 10);
+      }
+      assertEquals(sizer.floor(), sizer.getLimit());
+
+      // the database recovers, and borrowers are waiting
+      for (int i = 1; i <= 3; i++) {
+         recordUsage(sizer, 5);
+         assertEquals(4 + i, sizer.update(sizer.getLimit(), 1));
+      }
+
+      // no growth without demand
+      recordUsage(sizer, 5);
+      assertEquals(7, sizer.update(7, 0));
+
+      // slow connection creation is also a sign of congestion
+      sizer.recordCreationNanos(MILLISECONDS.toNanos(20));
+      sizer.update(7, 0);
+      sizer.recordCreationNanos(MILLISECONDS.toNanos(200));
+      assertEquals(5, sizer.update(7, 0));
+   }
+
+   @Test
+   public void testSlowDatabaseShrinksPool() throws Exception
+   {
+      System.setProperty("com.zaxxer.hikari.adaptivePoolSize.periodMs", "100");
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(2);
+      config.setMaximumPoolSize(10);
+      config.setAdaptivePoolSize(true);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.adaptivePoolSize.periodMs");
+         final HikariPool pool = getPool(ds);
+
+         final List<Connection> connections = new ArrayList<>();
+         for (int i = 0; i < 10; i++) {
+            connections.add(ds.getConnection());
+         }
+         for (Connection connection : connections) {
+            connection.close();
+         }
+         assertEquals(10, pool.getTotalConnections());
+
+         long start = ClockSource.currentTime();
+         while (ClockSource.elapsedMillis(start) < 500) {
+            ds.getConnection().close();
+         }
+
+         start = ClockSource.currentTime();
+         while (ClockSource.elapsedMillis(start) < 1000 && pool.getTotalConnections() > 2) {
+            try (Connection connection = ds.getConnection()) {
+               quietlySleep(20);
+            }
+         }
+
+         assertTrue("pool did not shrink, " + pool.getTotalConnections() + " connections", pool.getTotalConnections() < 10);
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.adaptivePoolSize.periodMs");
+      }
+   }
+
+   @Test
+   public void testLoweredMaximumPoolSizeIsEnforced() throws Exception
+   {
+      System.setProperty("com.zaxxer.hikari.housekeeping.periodMs", "100");
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(10);
+      config.setMaximumPoolSize(10);
+      config.setInitializationFailTimeout(Long.MAX_VALUE);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.housekeeping.periodMs");
+         final HikariPool pool = getPool(ds);
+
+         final long start = ClockSource.currentTime();
+         while (pool.getTotalConnections() < 10 && ClockSource.elapsedMillis(start) < 2000) {
+            quietlySleep(10);
+         }
+         assertEquals(10, pool.getTotalConnections());
+
+         ds.getHikariConfigMXBean().setMaximumPoolSize(5);
+         ds.getHikariConfigMXBean().setMinimumIdle(5);
+         quietlySleep(500);
+         assertEquals(5, pool.getTotalConnections());
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.housekeeping.periodMs");
+      }
+   }
+
+   private static void recordUsage(final AdaptivePoolSizer sizer, final long usageMs)
+   {
+      for (int i = 0; i < 10; i++) {
+         sizer.recordUsageNanos(MILLISECONDS.toNanos(usageMs));
+      }
+   }
+}
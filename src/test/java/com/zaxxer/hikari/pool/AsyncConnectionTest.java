@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class AsyncConnectionTest
+{
+   @Test
+   public void testAsyncIdleConnection() throws Exception
+   {
+      try (HikariDataSource ds = new HikariDataSource(newConfig(2))) {
+         final CompletableFuture<Connection> future = ds.getConnectionAsync();
+         try (Connection connection = future.get(5, SECONDS)) {
+            assertNotNull(connection);
+            assertEquals(1, getPool(ds).getActiveConnections());
+         }
+
+         assertEquals(0, getPool(ds).getActiveConnections());
+      }
+   }
+
+   @Test
+   public void testAsyncWaitersAreServedOnClose() throws Exception
+   {
+      try (HikariDataSource ds = new HikariDataSource(newConfig(1))) {
+         final HikariPool pool = getPool(ds);
+         final Connection held = ds.getConnection();
+
+         // each waiter closes its connection as soon as it gets it, handing it to the next in a chain
+         final AtomicInteger served = new AtomicInteger();
+         final List<CompletableFuture<Void>> futures = new ArrayList<>();
+         for (int i = 0; i < 5_000; i++) {
+            futures.add(ds.getConnectionAsync().thenAccept(connection -> {
+               served.incrementAndGet();
+               try {
+                  connection.close();
+               }
+               catch (SQLException e) {
+                  throw new RuntimeException(e);
+               }
+            }));
+         }
+
+         assertEquals(0, served.get());
+         assertEquals(5_000, pool.getThreadsAwaitingConnection());
+
+         held.close();
+         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, SECONDS);
+
+         assertEquals(5_000, served.get());
+         assertEquals(0, pool.getThreadsAwaitingConnection());
+         assertEquals(0, pool.getActiveConnections());
+      }
+   }
+
+   @Test
+   public void testAsyncWaiterIsNotServedOnReleasingThread() throws Exception
+   {
+      try (HikariDataSource ds = new HikariDataSource(newConfig(1))) {
+         final Connection held = ds.getConnection();
+
+         final CompletableFuture<Thread> servedOn = ds.getConnectionAsync().thenApply(connection -> {
+            try {
+               connection.close();
+            }
+            catch (SQLException e) {
+               throw new RuntimeException(e);
+            }
+            return Thread.currentThread();
+         });
+
+         held.close();
+         final Thread thread = servedOn.get(5, SECONDS);
+         assertNotSame(Thread.currentThread(), thread);
+         assertTrue(thread.getName().contains("async borrower"));
+      }
+   }
+
+   @Test
+   public void testAsyncHandOverFailureCompletesFuture() throws Exception
+   {
+      final RuntimeException failure = new RuntimeException("hand-over failed");
+      final AtomicBoolean failBorrows = new AtomicBoolean();
+      final HikariConfig config = newConfig(1);
+      config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+         @Override
+         public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos)
+         {
+            if (failBorrows.get()) {
+               throw failure;
+            }
+         }
+      });
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         final Connection held = ds.getConnection();
+         failBorrows.set(true);
+
+         final CompletableFuture<Connection> future = ds.getConnectionAsync();
+         held.close();
+         try {
+            future.get(500, MILLISECONDS);
+            fail("Should have failed");
+         }
+         catch (ExecutionException e) {
+            // completed by the failure itself, well before the connectionTimeout
+            assertSame(failure, e.getCause());
+         }
+      }
+   }
+
+   @Test
+   public void testAsyncTimeout() throws Exception
+   {
+      try (HikariDataSource ds = new HikariDataSource(newConfig(1))) {
+         final HikariPool pool = getPool(ds);
+         final Connection held = ds.getConnection();
+
+         final CompletableFuture<Connection> future = ds.getConnectionAsync();
+         try {
+            future.get(5, SECONDS);
+            fail("Should have timed out");
+         }
+         catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLTransientConnectionException);
+         }
+         assertEquals(0, pool.getThreadsAwaitingConnection());
+
+         // the timed out waiter must not swallow the next returned connection
+         held.close();
+         try (Connection connection = ds.getConnectionAsync().get(5, SECONDS)) {
+            assertNotNull(connection);
+         }
+      }
+   }
+
+   @Test
+   public void testAsyncClosedDataSource() throws Exception
+   {
+      final HikariDataSource ds = new HikariDataSource(newConfig(1));
+      ds.close();
+
+      final CompletableFuture<Connection> future = ds.getConnectionAsync();
+      assertTrue(future.isCompletedExceptionally());
+      assertFalse(future.isCancelled());
+   }
+
+   private static HikariConfig newConfig(final int maxPoolSize)
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(maxPoolSize);
+      config.setMaximumPoolSize(maxPoolSize);
+      config.setConnectionTimeout(1000);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      return config;
+   }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.ConnectionFanOut;
+import com.zaxxer.hikari.ConnectionFanOut.ConnectionTask;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class BulkBorrowTest
+{
+   @Test
+   public void testGetConnections() throws Exception
+   {
+      try (HikariDataSource ds = new HikariDataSource(newConfig(4))) {
+         final List<Connection> connections = ds.getConnections(3, 1000);
+         assertEquals(3, connections.size());
+         assertEquals(3, new HashSet<>(connections).size());
+         assertEquals(3, getPool(ds).getActiveConnections());
+
+         for (Connection connection : connections) {
+            connection.close();
+         }
+         assertEquals(0, getPool(ds).getActiveConnections());
+      }
+   }
+
+   @Test
+   public void testAllOrNothing() throws Exception
+   {
+      try (HikariDataSource ds = new HikariDataSource(newConfig(4))) {
+         try (Connection held = ds.getConnection()) {
+            ds.getConnections(4, 250);
+            fail();
+         }
+         catch (SQLTransientConnectionException e) {
+            // the three connections borrowed before the timeout were returned
+            assertEquals(0, getPool(ds).getActiveConnections());
+         }
+
+         try {
+            ds.getConnections(5, 250);
+            fail();
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("maximumPoolSize"));
+         }
+      }
+   }
+
+   @Test
+   public void testReservedConnectionsAreNotLent() throws Exception
+   {
+      HikariConfig config = newConfig(4);
+      config.setHighPriorityReserve(1);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         // the reserved connection can never be part of the set, so the request fails without waiting
+         final long start = System.currentTimeMillis();
+         try {
+            ds.getConnections(4, 5000);
+            fail();
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("highPriorityReserve"));
+            assertTrue(System.currentTimeMillis() - start < 1000);
+         }
+
+         final List<Connection> connections = ds.getConnections(3, 1000);
+         assertEquals(3, connections.size());
+         for (Connection connection : connections) {
+            connection.close();
+         }
+      }
+   }
+
+   @Test
+   public void testConcurrentBulkBorrowersDoNotDeadlock() throws Exception
+   {
+      final ExecutorService executor = Executors.newFixedThreadPool(4);
+      try (HikariDataSource ds = new HikariDataSource(newConfig(4))) {
+         // four borrowers taking three connections one at a time from a pool of four would each hold part of a set
+         final List<Future<Integer>> futures = new ArrayList<>();
+         for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+               for (int i = 0; i < 200; i++) {
+                  for (Connection connection : ds.getConnections(3, 5000)) {
+                     connection.close();
+                  }
+               }
+               return 200;
+            }));
+         }
+
+         for (Future<Integer> future : futures) {
+            assertEquals(200, (int) future.get(60, TimeUnit.SECONDS));
+         }
+         assertEquals(0, getPool(ds).getActiveConnections());
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testFanOut() throws Exception
+   {
+      final ExecutorService executor = Executors.newFixedThreadPool(3);
+      try (HikariDataSource ds = new HikariDataSource(newConfig(4))) {
+         final Set<Connection> used = ConcurrentHashMap.newKeySet();
+         final List<ConnectionTask<Integer>> tasks = new ArrayList<>();
+         for (int i = 0; i < 3; i++) {
+            final int id = i;
+            tasks.add(connection -> {
+               used.add(connection);
+               return id;
+            });
+         }
+
+         assertEquals(Arrays.asList(0, 1, 2), ConnectionFanOut.invokeAll(ds, tasks, executor, 1000));
+         assertEquals(3, used.size());
+         assertEquals(0, getPool(ds).getActiveConnections());
+
+         final ConnectionTask<Integer> failing = connection -> {
+            throw new SQLException("task failed");
+         };
+         try {
+            ConnectionFanOut.invokeAll(ds, Arrays.asList(failing, tasks.get(0), failing), executor, 1000);
+            fail();
+         }
+         catch (SQLException e) {
+            assertEquals("task failed", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+         }
+         assertEquals(0, getPool(ds).getActiveConnections());
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private static HikariConfig newConfig(final int maxPoolSize)
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(maxPoolSize);
+      config.setMaximumPoolSize(maxPoolSize);
+      config.setConnectionTimeout(1000);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      return config;
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.mocks.StubDataSource;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class CircuitBreakerTest
+{
+   @Test
+   public void testStateTransitions()
+   {
+      final CircuitBreaker breaker = new CircuitBreaker(3, 200);
+
+      assertTrue(breaker.tryAttempt());
+      assertFalse(breaker.recordFailure());
+      assertFalse(breaker.recordFailure());
+      assertFalse(breaker.isOpen());
+      assertTrue(breaker.recordFailure());
+      assertTrue(breaker.isOpen());
+      assertFalse(breaker.tryAttempt());
+
+      // half-open, a single probe is let through
+      quietlySleep(250);
+      assertFalse(breaker.isOpen());
+      assertTrue(breaker.tryAttempt());
+      assertFalse(breaker.tryAttempt());
+
+      // the probe failed
+      assertTrue(breaker.recordFailure());
+      assertTrue(breaker.isOpen());
+      assertFalse(breaker.tryAttempt());
+
+      quietlySleep(250);
+      assertTrue(breaker.tryAttempt());
+      assertTrue(breaker.recordSuccess());
+      assertFalse(breaker.isOpen());
+      assertTrue(breaker.tryAttempt());
+      assertTrue(breaker.tryAttempt());
+
+      // a success resets the count of consecutive failures
+      assertFalse(breaker.recordFailure());
+      assertFalse(breaker.recordSuccess());
+      assertFalse(breaker.recordFailure());
+      assertFalse(breaker.recordFailure());
+      assertFalse(breaker.isOpen());
+   }
+
+   @Test
+   public void testFailFastWhileOpen() throws Exception
+   {
+      final StubDataSource stubDataSource = new StubDataSource();
+      final SQLException failure = new SQLException("database is down", "08001");
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(0);
+      config.setMaximumPoolSize(2);
+      config.setConnectionTimeout(1000);
+      config.setCircuitBreakerThreshold(2);
+      config.setCircuitBreakerOpenTime(1500);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSource(stubDataSource);
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         stubDataSource.setThrowException(failure);
+
+         // waits out the timeout, while the attempts fail and open the breaker
+         try (Connection ignored = ds.getConnection()) {
+            fail("Connection should not have been created");
+         }
+         catch (SQLTransientConnectionException e) {
+            assertTrue(e.getMessage().contains("request timed out"));
+         }
+
+         long start = System.currentTimeMillis();
+         try (Connection ignored = ds.getConnection()) {
+            fail("Connection should not have been created");
+         }
+         catch (SQLTransientConnectionException e) {
+            assertTrue(System.currentTimeMillis() - start < 250);
+            assertTrue(e.getMessage().contains("circuit breaker is open"));
+            assertSame(failure, e.getCause());
+            assertSame("08001", e.getSQLState());
+         }
+
+         try {
+            ds.getConnectionAsync().get();
+            fail("Connection should not have been created");
+         }
+         catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("circuit breaker is open"));
+         }
+
+         // the database recovers, the half-open probe closes the breaker
+         stubDataSource.setThrowException(null);
+         quietlySleep(800);
+         try (Connection connection = ds.getConnection()) {
+            assertNotNull(connection);
+         }
+      }
+   }
+}
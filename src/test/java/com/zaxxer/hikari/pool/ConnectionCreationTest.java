@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.mocks.StubDataSource;
+import com.zaxxer.hikari.util.ClockSource;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class ConnectionCreationTest
+{
+   @Test
+   public void testParallelFill()
+   {
+      final StubDataSource stubDataSource = new StubDataSource();
+      stubDataSource.setConnectionAcquistionTime(200);
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(20);
+      config.setMaximumPoolSize(20);
+      config.setConnectionCreationParallelism(10);
+      config.setInitializationFailTimeout(0);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSource(stubDataSource);
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         final HikariPool pool = getPool(ds);
+
+         // one at a time, filling the pool would take four seconds
+         final long start = ClockSource.currentTime();
+         while (pool.getTotalConnections() < 20 && ClockSource.elapsedMillis(start) < 2000) {
+            assertTrue(pool.getTotalConnections() <= 20);
+            quietlySleep(20);
+         }
+
+         assertEquals(20, pool.getTotalConnections());
+         quietlySleep(300);
+         assertEquals(20, pool.getTotalConnections());
+      }
+   }
+
+   @Test
+   public void testParallelCreationForWaiters() throws Exception
+   {
+      final StubDataSource stubDataSource = new StubDataSource();
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(0);
+      config.setMaximumPoolSize(10);
+      config.setConnectionCreationParallelism(8);
+      config.setConnectionTimeout(5000);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSource(stubDataSource);
+
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         final HikariPool pool = getPool(ds);
+         stubDataSource.setConnectionAcquistionTime(300);
+
+         // one at a time, the last borrower would wait 2.4 seconds
+         final long start = ClockSource.currentTime();
+         final List<Future<Connection>> futures = new ArrayList<>();
+         for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> ds.getConnection()));
+         }
+         for (Future<Connection> future : futures) {
+            future.get().close();
+         }
+
+         final long elapsed = ClockSource.elapsedMillis(start);
+         assertTrue("borrowers were served one creation at a time, " + elapsed + "ms", elapsed < 1500);
+         assertTrue(pool.getTotalConnections() <= 8);
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidParallelism()
+   {
+      newHikariConfig().setConnectionCreationParallelism(0);
+   }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class ConnectionRateLimiterTest
+{
+   @Test
+   public void testBurstThenRate()
+   {
+      // 10 per second is one token every 100ms
+      final ConnectionRateLimiter limiter = new ConnectionRateLimiter(10, 3);
+      final long now = System.nanoTime() + MILLISECONDS.toNanos(1000);
+
+      assertEquals(0, limiter.reserve(now));
+      assertEquals(0, limiter.reserve(now));
+      assertEquals(0, limiter.reserve(now));
+      assertEquals(MILLISECONDS.toNanos(100), limiter.reserve(now));
+      assertEquals(MILLISECONDS.toNanos(200), limiter.reserve(now));
+
+      // the bucket refills at the rate, up to the burst
+      final long later = now + MILLISECONDS.toNanos(10_000);
+      assertEquals(0, limiter.reserve(later));
+      assertEquals(0, limiter.reserve(later));
+      assertEquals(0, limiter.reserve(later));
+      assertEquals(MILLISECONDS.toNanos(100), limiter.reserve(later));
+   }
+
+   @Test
+   public void testAcquireWaits()
+   {
+      final ConnectionRateLimiter limiter = new ConnectionRateLimiter(20, 1);
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < 5; i++) {
+         limiter.acquire();
+      }
+
+      // the first token is free, the remaining four come 50ms apart
+      assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(190));
+   }
+
+   @Test
+   public void testDisabled()
+   {
+      assertNull(ConnectionRateLimiter.create(0, 5));
+   }
+}
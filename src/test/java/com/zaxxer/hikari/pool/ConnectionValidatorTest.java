@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.ConnectionValidator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class ConnectionValidatorTest
+{
+   @Test
+   public void testUserSuppliedValidator() throws Exception
+   {
+      CountingValidator.VALIDATIONS.set(0);
+      CountingValidator.CLOSED.set(0);
+      CountingValidator.FAIL_NEXT.set(false);
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(0);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(2500);
+      config.setConnectionValidatorClassName(CountingValidator.class.getName());
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.aliveBypassWindowMs", "0");
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+
+         Connection unwrapped;
+         try (Connection connection = ds.getConnection()) {
+            unwrapped = connection.unwrap(Connection.class);
+         }
+
+         quietlySleep(10);
+         try (Connection connection = ds.getConnection()) {
+            assertTrue(unwrapped == connection.unwrap(Connection.class));
+         }
+         assertTrue(CountingValidator.VALIDATIONS.get() >= 1);
+
+         // a connection the validator rejects is replaced, and the validator releases it
+         CountingValidator.FAIL_NEXT.set(true);
+         quietlySleep(10);
+         try (Connection connection = ds.getConnection()) {
+            assertNotSame(unwrapped, connection.unwrap(Connection.class));
+         }
+         assertTrue(CountingValidator.CLOSED.get() >= 1);
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+      }
+   }
+
+   @Test
+   public void testFixedWindow()
+   {
+      final AliveBypassWindow window = new AliveBypassWindow(500, 0);
+      assertEquals(500, window.getMillis());
+
+      window.recordValidation(true);
+      window.recordValidation(false);
+      assertEquals(500, window.getMillis());
+   }
+
+   @Test
+   public void testAdaptiveWindow()
+   {
+      final AliveBypassWindow window = new AliveBypassWindow(500, 10_000);
+      // the wider window is earned
+      assertEquals(500, window.getMillis());
+
+      for (int i = 0; i < 100; i++) {
+         window.recordValidation(true);
+      }
+      final long healthy = window.getMillis();
+      assertTrue("Expected the window to widen, got " + healthy, healthy > 9_000 && healthy <= 10_000);
+
+      // a single failure narrows it back
+      window.recordValidation(false);
+      assertEquals(500, window.getMillis());
+
+      window.recordValidation(true);
+      assertTrue(window.getMillis() > 500 && window.getMillis() < healthy);
+   }
+
+   public static class CountingValidator implements ConnectionValidator
+   {
+      static final AtomicInteger VALIDATIONS = new AtomicInteger();
+      static final AtomicInteger CLOSED = new AtomicInteger();
+      static final AtomicBoolean FAIL_NEXT = new AtomicBoolean();
+
+      @Override
+      public boolean isAlive(final Connection connection, final int timeoutSeconds)
+      {
+         VALIDATIONS.incrementAndGet();
+         return !FAIL_NEXT.getAndSet(false);
+      }
+
+      @Override
+      public void closed(final Connection connection)
+      {
+         CLOSED.incrementAndGet();
+      }
+   }
+}
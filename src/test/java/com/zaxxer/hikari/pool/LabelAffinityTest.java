@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.mocks.StubConnection;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class LabelAffinityTest
+{
+   @Test
+   public void testLabelledStateIsPreserved() throws Exception
+   {
+      final AtomicInteger hits = new AtomicInteger();
+      final AtomicInteger misses = new AtomicInteger();
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setCatalog("main");
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+         @Override
+         public void recordLabelAffinityHit()
+         {
+            hits.incrementAndGet();
+         }
+
+         @Override
+         public void recordLabelAffinityMiss()
+         {
+            misses.incrementAndGet();
+         }
+      });
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         StubConnection stub;
+         try (Connection connection = ds.getLabelledConnection("tenant1")) {
+            connection.setCatalog("tenant1");
+            stub = connection.unwrap(StubConnection.class);
+         }
+         assertEquals("tenant1", stub.getCatalog());
+         assertEquals(0, hits.get());
+         assertEquals(1, misses.get());
+
+         try (Connection connection = ds.getLabelledConnection("tenant1")) {
+            assertEquals("tenant1", connection.unwrap(StubConnection.class).getCatalog());
+         }
+         assertEquals(1, hits.get());
+
+         // another label, or none, gets the pool's default catalog
+         try (Connection connection = ds.getLabelledConnection("tenant2")) {
+            assertEquals("main", connection.unwrap(StubConnection.class).getCatalog());
+            connection.setCatalog("tenant2");
+         }
+         assertEquals(2, misses.get());
+
+         try (Connection connection = ds.getConnection()) {
+            assertEquals("main", connection.unwrap(StubConnection.class).getCatalog());
+            connection.setCatalog("other");
+         }
+         assertEquals("main", stub.getCatalog());
+         assertEquals(2, misses.get());
+      }
+   }
+
+   @Test
+   public void testMatchingLabelIsPreferred() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(4);
+      config.setMaximumPoolSize(4);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         final Connection[] labelled = new Connection[3];
+         final StubConnection[] stubs = new StubConnection[3];
+         for (int i = 0; i < labelled.length; i++) {
+            labelled[i] = ds.getLabelledConnection("tenant" + i);
+            stubs[i] = labelled[i].unwrap(StubConnection.class);
+         }
+         for (Connection connection : labelled) {
+            connection.close();
+         }
+
+         for (int i = labelled.length - 1; i >= 0; i--) {
+            try (Connection connection = ds.getLabelledConnection("tenant" + i)) {
+               assertEquals(stubs[i], connection.unwrap(StubConnection.class));
+            }
+         }
+      }
+   }
+}
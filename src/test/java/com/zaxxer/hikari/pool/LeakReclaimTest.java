@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.pool.TestElf.setConfigUnitTest;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class LeakReclaimTest
+{
+   @Test
+   public void testLeakedConnectionIsReclaimed() throws Exception
+   {
+      final List<String> callSites = new CopyOnWriteArrayList<>();
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(2500);
+      config.setLeakReclaimThreshold(1000);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+         @Override
+         public void recordConnectionLeakReclaimed(final String callSite)
+         {
+            callSites.add(callSite);
+         }
+      });
+
+      System.setProperty("com.zaxxer.hikari.leakDetection.samplePeriod", "1");
+      setConfigUnitTest(true);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.leakDetection.samplePeriod");
+         HikariPool pool = getPool(ds);
+
+         final Connection leaked = ds.getConnection();
+         final Connection unwrapped = leaked.unwrap(Connection.class);
+
+         for (int i = 0; i < 40 && callSites.isEmpty(); i++) {
+            quietlySleep(100);
+         }
+
+         assertEquals(1, callSites.size());
+         assertTrue("Expected the call site of the borrow, got " + callSites.get(0), callSites.get(0).contains(LeakReclaimTest.class.getName()));
+         assertTrue("Leaked connection should be closed", leaked.isClosed());
+         try {
+            leaked.createStatement();
+            fail("Use of a reclaimed connection should throw");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("closed"));
+         }
+
+         // closing it late is harmless, and does not return it to the pool
+         leaked.close();
+
+         // the capacity is restored
+         try (Connection connection = ds.getConnection()) {
+            assertNotSame(unwrapped, connection.unwrap(Connection.class));
+         }
+         assertEquals(1, pool.getTotalConnections());
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.leakDetection.samplePeriod");
+         setConfigUnitTest(false);
+      }
+   }
+
+   @Test
+   public void testReturnedConnectionIsNotReclaimed() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setLeakReclaimThreshold(1000);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      setConfigUnitTest(true);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         Connection unwrapped;
+         try (Connection connection = ds.getConnection()) {
+            unwrapped = connection.unwrap(Connection.class);
+         }
+
+         quietlySleep(1500);
+
+         try (Connection connection = ds.getConnection()) {
+            assertTrue(unwrapped == connection.unwrap(Connection.class));
+         }
+      }
+      finally {
+         setConfigUnitTest(false);
+      }
+   }
+
+   @Test
+   public void testEvictingStaleConnectionKeepsLaterBorrowTracked() throws Exception
+   {
+      final List<String> callSites = new CopyOnWriteArrayList<>();
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(2500);
+      config.setLeakReclaimThreshold(1000);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+         @Override
+         public void recordConnectionLeakReclaimed(final String callSite)
+         {
+            callSites.add(callSite);
+         }
+      });
+
+      setConfigUnitTest(true);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         final Connection stale = ds.getConnection();
+         stale.close();
+
+         // the same entry is borrowed again, and an eviction through the closed connection must not end that borrow
+         final Connection leaked = ds.getConnection();
+         ds.evictConnection(stale);
+
+         for (int i = 0; i < 40 && callSites.isEmpty(); i++) {
+            quietlySleep(100);
+         }
+
+         assertEquals(1, callSites.size());
+         assertTrue("Leaked connection should be closed", leaked.isClosed());
+      }
+      finally {
+         setConfigUnitTest(false);
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNegativeLeakReclaimThreshold()
+   {
+      newHikariConfig().setLeakReclaimThreshold(-1);
+   }
+}
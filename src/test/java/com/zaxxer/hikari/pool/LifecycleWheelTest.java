@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class LifecycleWheelTest
+{
+   @Test
+   public void testDeadlinesFire()
+   {
+      final List<String> fired = Collections.synchronizedList(new ArrayList<>());
+      // 10ms ticks over 8 slots, one revolution is 80ms
+      final LifecycleWheel wheel = new LifecycleWheel(10, 8, new RecordingListener(fired));
+
+      final PoolEntry entry1 = new PoolEntry(null, null, false, false);
+      final PoolEntry entry2 = new PoolEntry(null, null, false, false);
+      wheel.scheduleEndOfLife(entry1, 50, "one");
+      // several revolutions away
+      wheel.scheduleEndOfLife(entry2, 300, "two");
+
+      runFor(wheel, 150);
+      assertEquals(Collections.singletonList("one"), fired);
+
+      runFor(wheel, 250);
+      assertEquals(2, fired.size());
+      assertEquals("two", fired.get(1));
+   }
+
+   @Test
+   public void testKeepaliveRepeatsUntilCancelled()
+   {
+      final List<String> fired = Collections.synchronizedList(new ArrayList<>());
+      final LifecycleWheel wheel = new LifecycleWheel(10, 8, new RecordingListener(fired));
+
+      final PoolEntry entry = new PoolEntry(null, null, false, false);
+      wheel.scheduleKeepalive(entry, 40);
+      wheel.scheduleEndOfLife(entry, 1000, "never");
+
+      runFor(wheel, 300);
+      final int keepalives = fired.size();
+      assertTrue("Expected repeated keepalives, got " + keepalives, keepalives >= 4);
+      assertTrue(fired.stream().allMatch("keepalive"::equals));
+
+      wheel.cancel(entry);
+      runFor(wheel, 100);
+      assertEquals(keepalives, fired.size());
+   }
+
+   @Test
+   public void testRescheduleReplacesEndOfLife()
+   {
+      final List<String> fired = Collections.synchronizedList(new ArrayList<>());
+      final LifecycleWheel wheel = new LifecycleWheel(10, 8, new RecordingListener(fired));
+
+      final PoolEntry entry = new PoolEntry(null, null, false, false);
+      wheel.scheduleEndOfLife(entry, 500, "late");
+      wheel.scheduleEndOfLife(entry, 30, "early");
+
+      runFor(wheel, 150);
+      assertEquals(Collections.singletonList("early"), fired);
+   }
+
+   private static void runFor(final LifecycleWheel wheel, final long millis)
+   {
+      final long start = System.currentTimeMillis();
+      while (System.currentTimeMillis() - start < millis) {
+         wheel.run();
+         quietlySleep(wheel.getTickMs());
+      }
+      wheel.run();
+   }
+
+   private static final class RecordingListener implements LifecycleWheel.Listener
+   {
+      private final List<String> fired;
+
+      RecordingListener(final List<String> fired)
+      {
+         this.fired = fired;
+      }
+
+      @Override
+      public void endOfLife(final PoolEntry poolEntry, final String reason)
+      {
+         fired.add(reason);
+      }
+
+      @Override
+      public void keepalive(final PoolEntry poolEntry)
+      {
+         fired.add("keepalive");
+      }
+   }
+}
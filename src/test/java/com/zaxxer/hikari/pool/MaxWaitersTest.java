@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.pool.HikariPool.ConnectionRejectedException;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class MaxWaitersTest
+{
+   @Test
+   public void testRejectWhenWaiterQueueFull() throws Exception
+   {
+      final AtomicInteger rejected = new AtomicInteger();
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(2000);
+      config.setMaxWaiters(1);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+         @Override
+         public void recordConnectionRejected()
+         {
+            rejected.incrementAndGet();
+         }
+      });
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+         try (Connection held = ds.getConnection()) {
+            final CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+               try {
+                  return ds.getConnection();
+               }
+               catch (SQLException e) {
+                  throw new RuntimeException(e);
+               }
+            });
+
+            for (int i = 0; i < 100 && pool.getThreadsAwaitingConnection() == 0; i++) {
+               quietlySleep(10);
+            }
+            assertEquals(1, pool.getThreadsAwaitingConnection());
+
+            final long start = System.nanoTime();
+            try {
+               ds.getConnection().close();
+               fail("borrower should have been rejected");
+            }
+            catch (ConnectionRejectedException e) {
+               assertTrue("rejection should be immediate", System.nanoTime() - start < 500_000_000L);
+               assertEquals(0, e.getStackTrace().length);
+            }
+
+            try {
+               pool.getConnectionAsync().get().close();
+               fail("async borrower should have been rejected");
+            }
+            catch (ExecutionException e) {
+               assertTrue(e.getCause() instanceof ConnectionRejectedException);
+            }
+            assertEquals(2, rejected.get());
+
+            held.close();
+            try (Connection connection = waiter.get()) {
+               assertNotNull(connection);
+            }
+         }
+
+         // with no waiters, borrowers are served again
+         try (Connection connection = ds.getConnection()) {
+            assertNotNull(connection);
+         }
+         assertEquals(2, rejected.get());
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNegativeMaxWaiters()
+   {
+      newHikariConfig().setMaxWaiters(-1);
+   }
+}
@@ -132,4 +132,45 @@ public class MiscTest
          }
       }
    }
+
+   @Test
+   public void testLeakDetectionReportsOnce() throws Exception
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (PrintStream ps = new PrintStream(baos, true)) {
+         setSlf4jTargetStream(Class.forName("com.zaxxer.hikari.pool.ProxyLeakTask"), ps);
+         setConfigUnitTest(true);
+         // capture the call site of every borrow
+         System.setProperty("com.zaxxer.hikari.leakDetection.samplePeriod", "1");
+
+         HikariConfig config = newHikariConfig();
+         config.setMinimumIdle(0);
+         config.setMaximumPoolSize(4);
+         config.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(1));
+         config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+         try (HikariDataSource ds = new HikariDataSource(config)) {
+            System.clearProperty("com.zaxxer.hikari.leakDetection.samplePeriod");
+
+            // a connection returned within the threshold is never reported
+            try (Connection connection = ds.getConnection()) {
+               assertNotNull(connection);
+            }
+
+            try (Connection connection = ds.getConnection()) {
+               quietlySleep(SECONDS.toMillis(2));
+            }
+
+            ps.close();
+            String s = new String(baos.toByteArray());
+            assertEquals("Expected one leak report in *" + s + "*", 1, s.split("Connection leak detection triggered", -1).length - 1);
+            assertTrue("Expected the unleaked report in *" + s + "*", s.contains("was returned to the pool (unleaked)"));
+         }
+         finally
+         {
+            System.clearProperty("com.zaxxer.hikari.leakDetection.samplePeriod");
+            setConfigUnitTest(false);
+         }
+      }
+   }
 }
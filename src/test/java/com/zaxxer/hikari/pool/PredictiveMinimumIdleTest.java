@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.util.ClockSource;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class PredictiveMinimumIdleTest
+{
+   @Test
+   public void testForecastFollowsRampAndDecays()
+   {
+      final DemandForecaster forecaster = new DemandForecaster();
+      for (int demand = 0; demand <= 16; demand += 2) {
+         forecaster.update(demand);
+      }
+      assertTrue("forecast " + forecaster.getForecast() + " is not ahead of the ramp", forecaster.getForecast() > 16);
+      assertTrue(forecaster.getTarget() > 16);
+
+      int previous = forecaster.getTarget();
+      for (int i = 1; i <= 5; i++) {
+         forecaster.update(0);
+         final int target = forecaster.getTarget();
+         assertTrue("capacity was released abruptly", target <= previous && target >= Math.floor(16 * Math.pow(DemandForecaster.PEAK_DECAY, i)));
+         previous = target;
+      }
+
+      for (int i = 0; i < 50; i++) {
+         forecaster.update(0);
+      }
+      assertEquals(0, forecaster.getTarget());
+      assertEquals(0.0, forecaster.getForecast(), 0.1);
+   }
+
+   @Test
+   public void testCapacityDecaysGradually() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(20);
+      config.setPredictiveMinimumIdle(true);
+      config.setInitializationFailTimeout(0);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.housekeeping.periodMs", "100");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.housekeeping.periodMs");
+         ds.setIdleTimeout(1000);
+
+         final HikariPool pool = getPool(ds);
+         final HikariPoolMXBean poolMXBean = ds.getHikariPoolMXBean();
+
+         final List<Connection> connections = new ArrayList<>();
+         for (int i = 0; i < 10; i++) {
+            connections.add(ds.getConnection());
+         }
+         quietlySleep(300);
+         assertTrue(poolMXBean.getConnectionDemandForecast() > 5);
+         assertEquals(10, poolMXBean.getEffectiveMinimumConnections());
+
+         for (Connection connection : connections) {
+            connection.close();
+         }
+
+         // idleTimeout has passed, but the capacity is still being released
+         quietlySleep(1300);
+         assertTrue("capacity was released abruptly", pool.getTotalConnections() > 1);
+         assertTrue(poolMXBean.getEffectiveMinimumConnections() > 1);
+
+         final long start = ClockSource.currentTime();
+         while (pool.getTotalConnections() > 1 && ClockSource.elapsedMillis(start) < 5000) {
+            quietlySleep(100);
+         }
+         assertEquals(1, pool.getTotalConnections());
+         assertEquals(1, poolMXBean.getEffectiveMinimumConnections());
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.housekeeping.periodMs");
+      }
+   }
+}
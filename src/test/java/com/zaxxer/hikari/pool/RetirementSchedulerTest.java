@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.getConcurrentBag;
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class RetirementSchedulerTest
+{
+   @Test
+   public void testSlotsBeforeDue()
+   {
+      final RetirementScheduler scheduler = new RetirementScheduler(2, 1000);
+
+      final Map<Long, Integer> perInterval = new HashMap<>();
+      final List<Long> retirements = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+         final long retireMs = scheduler.assign(0, 60_500, false);
+         retirements.add(retireMs);
+         perInterval.merge(retireMs / 1000, 1, Integer::sum);
+      }
+
+      assertEquals(5, perInterval.size());
+      assertTrue(perInterval.values().stream().allMatch(count -> count == 2));
+      assertEquals(60_500L, (long) Collections.max(retirements));
+      assertEquals(56_500L, (long) Collections.min(retirements));
+
+      // a freed slot is given out again
+      scheduler.release(60_500);
+      assertEquals(60_500L, scheduler.assign(0, 60_500, false));
+      assertEquals(55_500L, scheduler.assign(0, 60_500, false));
+   }
+
+   @Test
+   public void testSlotsAfterDue()
+   {
+      final RetirementScheduler scheduler = new RetirementScheduler(2, 1000);
+
+      final List<Long> retirements = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+         retirements.add(scheduler.assign(10_250, 10_250, true));
+      }
+      assertEquals(List.of(10_250L, 10_250L, 11_250L, 11_250L, 12_250L), retirements);
+
+      // nothing earlier is free, so the first free slot after it was due
+      final RetirementScheduler full = new RetirementScheduler(1, 1000);
+      assertEquals(5_000L, full.assign(5_000, 5_000, false));
+      assertEquals(6_000L, full.assign(5_000, 5_000, false));
+      assertEquals(7_000L, full.assign(5_000, 5_000, false));
+
+      // slots of intervals that have passed are forgotten
+      assertEquals(9_000L, full.assign(9_000, 9_000, false));
+   }
+
+   @Test
+   public void testSoftEvictionIsRateCapped() throws Exception
+   {
+      final List<Long> shifts = Collections.synchronizedList(new ArrayList<>());
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(5);
+      config.setMaximumPoolSize(5);
+      config.setMaxRetirementsPerInterval(1);
+      config.setRetirementInterval(200);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+         @Override
+         public void recordConnectionRetirementShiftMillis(final long shiftMillis)
+         {
+            shifts.add(shiftMillis);
+         }
+      });
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         final HikariPool pool = getPool(ds);
+         while (pool.getTotalConnections() < 5) {
+            quietlySleep(10);
+         }
+
+         final Set<Connection> original = connections(ds);
+         shifts.clear();
+         ds.getHikariPoolMXBean().softEvictConnections();
+
+         // the first retires at once, the others stay in service to be retired one per interval
+         assertEquals(5, shifts.size());
+         assertTrue("retirements were not spread, " + shifts, Collections.max(shifts) >= 600);
+         assertTrue(connections(ds).stream().filter(original::contains).count() >= 4);
+
+         final long start = System.currentTimeMillis();
+         while (connections(ds).stream().anyMatch(original::contains) && System.currentTimeMillis() - start < 3000) {
+            quietlySleep(20);
+         }
+
+         final Set<Connection> replaced = connections(ds);
+         assertFalse(replaced.stream().anyMatch(original::contains));
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidRetirementInterval()
+   {
+      newHikariConfig().setRetirementInterval(0);
+   }
+
+   private static Set<Connection> connections(final HikariDataSource ds)
+   {
+      final Set<Connection> connections = new HashSet<>();
+      for (Object entry : getConcurrentBag(ds).values()) {
+         connections.add(((PoolEntry) entry).connection);
+      }
+      connections.remove(null);
+      return connections;
+   }
+}
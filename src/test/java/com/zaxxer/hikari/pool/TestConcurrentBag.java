@@ -16,26 +16,51 @@
 
 package com.zaxxer.hikari.pool;
 
+import static com.zaxxer.hikari.ConnectionPriority.HIGH;
+import static com.zaxxer.hikari.ConnectionPriority.LOW;
+import static com.zaxxer.hikari.ConnectionPriority.NORMAL;
 import static com.zaxxer.hikari.pool.TestElf.getPool;
 import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
 import static com.zaxxer.hikari.pool.TestElf.setSlf4jTargetStream;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.zaxxer.hikari.ConnectionPriority;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.util.ConcurrentBag;
+import com.zaxxer.hikari.util.ThreadElf;
+
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_IN_USE;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_REMOVED;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_RESERVED;
 
 /**
  *
@@ -114,4 +139,353 @@ public class TestConcurrentBag
          assertNotNull(notinuse.toString());
       }
    }
+
+   @Test
+   public void testStateCountsMatchScan() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         final List<PoolEntry> entries = new ArrayList<>();
+         for (int i = 0; i < 16; i++) {
+            final PoolEntry entry = pool.newPoolEntry();
+            entries.add(entry);
+            bag.add(entry);
+         }
+
+         bag.reserve(entries.get(0));
+         bag.reserve(entries.get(1));
+         final PoolEntry borrowed = bag.borrow(10, MILLISECONDS);
+         assertStateCounts(bag);
+
+         bag.unreserve(entries.get(0));
+         bag.remove(entries.get(1));
+         bag.requite(borrowed);
+         assertStateCounts(bag);
+
+         // an entry removed while borrowed is not brought back by its late return
+         final PoolEntry evicted = bag.borrow(10, MILLISECONDS);
+         assertTrue(bag.remove(evicted));
+         bag.requite(evicted);
+         assertEquals(STATE_REMOVED, evicted.getState());
+         assertStateCounts(bag);
+
+         final List<Thread> threads = new ArrayList<>();
+         for (int t = 0; t < 8; t++) {
+            final Thread thread = new Thread(() -> {
+               final ThreadLocalRandom random = ThreadLocalRandom.current();
+               for (int i = 0; i < 10_000; i++) {
+                  try {
+                     if (random.nextInt(4) == 0) {
+                        for (PoolEntry entry : bag.values(STATE_NOT_IN_USE)) {
+                           if (bag.reserve(entry)) {
+                              bag.unreserve(entry);
+                           }
+                        }
+                     }
+                     else {
+                        final PoolEntry entry = bag.borrow(10, MILLISECONDS);
+                        if (entry != null) {
+                           bag.requite(entry);
+                        }
+                     }
+                  }
+                  catch (InterruptedException e) {
+                     Thread.currentThread().interrupt();
+                     return;
+                  }
+               }
+            });
+            threads.add(thread);
+            thread.start();
+         }
+
+         for (Thread thread : threads) {
+            thread.join();
+         }
+
+         assertStateCounts(bag);
+         assertEquals(14, bag.getCount(STATE_NOT_IN_USE));
+      }
+   }
+
+   @Test
+   public void testTryBorrowDoesNotWait() throws Exception
+   {
+      final AtomicInteger requested = new AtomicInteger();
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> requested.incrementAndGet())) {
+         // nothing idle, and the caller neither waits nor asks for a new entry
+         assertNull(bag.tryBorrow(NORMAL, null));
+         assertEquals(0, requested.get());
+         assertEquals(0, bag.getWaitingThreadCount());
+
+         final PoolEntry entry = pool.newPoolEntry();
+         bag.add(entry);
+         assertSame(entry, bag.tryBorrow(NORMAL, null));
+         assertNull(bag.tryBorrow(NORMAL, null));
+         assertEquals(0, requested.get());
+
+         bag.requite(entry);
+         assertStateCounts(bag);
+      }
+   }
+
+   @Test
+   public void testStripedBorrowSteals() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE), 4)) {
+         final List<PoolEntry> entries = new ArrayList<>();
+         for (int i = 0; i < 10; i++) {
+            final PoolEntry entry = pool.newPoolEntry();
+            entries.add(entry);
+            bag.add(entry);
+         }
+
+         // a single thread must be able to drain every stripe, not just its own
+         final Set<PoolEntry> borrowed = new HashSet<>();
+         for (int i = 0; i < entries.size(); i++) {
+            final PoolEntry entry = bag.borrow(10, MILLISECONDS);
+            assertNotNull(entry);
+            assertTrue(borrowed.add(entry));
+         }
+         assertNull(bag.borrow(10, MILLISECONDS));
+         assertEquals(entries.size(), bag.getCount(STATE_IN_USE));
+
+         borrowed.forEach(bag::requite);
+         assertStateCounts(bag);
+
+         assertTrue(bag.reserve(entries.get(9)));
+         assertTrue(bag.remove(entries.get(9)));
+         assertTrue(bag.reserve(entries.get(8)));
+         assertTrue(bag.remove(entries.get(8)));
+         assertNotNull(bag.borrow(10, MILLISECONDS));
+         assertStateCounts(bag);
+      }
+   }
+
+   @Test
+   public void testHandoffIsFifo() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         bag.add(pool.newPoolEntry());
+         final PoolEntry held = bag.borrow(10, MILLISECONDS);
+         assertNotNull(held);
+
+         final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+         final List<Thread> threads = new ArrayList<>();
+         for (int i = 0; i < 4; i++) {
+            final int id = i;
+            final Thread thread = new Thread(() -> {
+               try {
+                  final PoolEntry entry = bag.borrow(5, SECONDS);
+                  if (entry != null) {
+                     order.add(id);
+                     bag.requite(entry);
+                  }
+               }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            });
+            thread.start();
+            threads.add(thread);
+
+            // wait until this borrower is parked in the queue before starting the next
+            while (thread.getState() != Thread.State.TIMED_WAITING) {
+               Thread.sleep(1);
+            }
+         }
+
+         assertEquals(4, bag.getWaitingThreadCount());
+         bag.requite(held);
+
+         for (Thread thread : threads) {
+            thread.join();
+         }
+
+         assertEquals(Arrays.asList(0, 1, 2, 3), order);
+         assertEquals(0, bag.getWaitingThreadCount());
+         assertStateCounts(bag);
+      }
+   }
+
+   @Test
+   public void testHandoffByPriority() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         bag.add(pool.newPoolEntry());
+         final PoolEntry held = bag.borrow(10, MILLISECONDS);
+         assertNotNull(held);
+
+         final List<ConnectionPriority> order = Collections.synchronizedList(new ArrayList<>());
+         final List<Thread> threads = new ArrayList<>();
+         for (ConnectionPriority priority : new ConnectionPriority[] { LOW, NORMAL, LOW, HIGH }) {
+            final Thread thread = new Thread(() -> {
+               try {
+                  final PoolEntry entry = bag.borrow(5, SECONDS, priority);
+                  if (entry != null) {
+                     order.add(priority);
+                     bag.requite(entry);
+                  }
+               }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            });
+            thread.start();
+            threads.add(thread);
+
+            while (thread.getState() != Thread.State.TIMED_WAITING) {
+               Thread.sleep(1);
+            }
+         }
+
+         bag.requite(held);
+
+         for (Thread thread : threads) {
+            thread.join();
+         }
+
+         assertEquals(Arrays.asList(HIGH, NORMAL, LOW, LOW), order);
+         assertStateCounts(bag);
+      }
+   }
+
+   @Test
+   public void testHighPriorityReserve() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE), 1, 1)) {
+         for (int i = 0; i < 3; i++) {
+            bag.add(pool.newPoolEntry());
+         }
+
+         final PoolEntry first = bag.borrow(10, MILLISECONDS, LOW);
+         final PoolEntry second = bag.borrow(10, MILLISECONDS);
+         assertNotNull(first);
+         assertNotNull(second);
+
+         // the last idle entry is reserved
+         assertNull(bag.borrow(10, MILLISECONDS, LOW));
+         assertNull(bag.borrow(10, MILLISECONDS));
+
+         final PoolEntry reserved = bag.borrow(10, MILLISECONDS, HIGH);
+         assertNotNull(reserved);
+
+         // a returned entry goes to the waiting LOW borrower only once another entry is idle
+         final CompletableFuture<PoolEntry> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+               return bag.borrow(5, SECONDS, LOW);
+            }
+            catch (InterruptedException e) {
+               throw new RuntimeException(e);
+            }
+         });
+
+         while (bag.getWaitingThreadCount() == 0) {
+            Thread.sleep(1);
+         }
+
+         bag.requite(reserved);
+         Thread.sleep(50);
+         assertFalse(waiting.isDone());
+         assertEquals(1, bag.getCount(STATE_NOT_IN_USE));
+
+         bag.requite(first);
+         assertNotNull(waiting.get(5, SECONDS));
+         assertEquals(1, bag.getCount(STATE_NOT_IN_USE));
+         assertStateCounts(bag);
+      }
+   }
+
+   @Test
+   public void testBorrowOrder() throws Exception
+   {
+      // entry 0 is the oldest, and was returned most recently
+      assertEquals(0, borrowFirst("MRU"));
+      assertEquals(2, borrowFirst("LRU"));
+      assertEquals(2, borrowFirst("YOUNGEST_FIRST"));
+   }
+
+   private static int borrowFirst(final String borrowOrder) throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE), 1, 0, PoolEntry.borrowOrder(borrowOrder))) {
+         final List<PoolEntry> entries = new ArrayList<>();
+         for (int i = 0; i < 3; i++) {
+            final PoolEntry entry = pool.newPoolEntry();
+            entries.add(entry);
+            bag.add(entry);
+         }
+         entries.get(0).lastAccessed = entries.get(2).lastAccessed + 2;
+         entries.get(1).lastAccessed = entries.get(2).lastAccessed + 1;
+
+         final PoolEntry first = bag.borrow(10, MILLISECONDS);
+         final PoolEntry second = bag.borrow(10, MILLISECONDS);
+         final PoolEntry third = bag.borrow(10, MILLISECONDS);
+         bag.requite(first);
+         bag.requite(second);
+         bag.requite(third);
+
+         // with a borrow order, the entry this thread returned last is not preferred over a better one
+         assertEquals(first, bag.borrow(10, MILLISECONDS));
+         return entries.indexOf(first);
+      }
+   }
+
+   @Test
+   public void testVirtualThreadBorrow() throws Exception
+   {
+      final Method startVirtualThread;
+      try {
+         startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+      }
+      catch (NoSuchMethodException e) {
+         assumeNoException("Virtual threads are not supported by this JVM", e);
+         return;
+      }
+
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>((x) -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         for (int i = 0; i < 4; i++) {
+            bag.add(pool.newPoolEntry());
+         }
+
+         final AtomicInteger borrowed = new AtomicInteger();
+         final AtomicBoolean virtual = new AtomicBoolean(true);
+         final List<Thread> threads = new ArrayList<>();
+         for (int t = 0; t < 1_000; t++) {
+            threads.add((Thread) startVirtualThread.invoke(null, (Runnable) () -> {
+               try {
+                  virtual.compareAndSet(true, ThreadElf.isVirtual(Thread.currentThread()));
+                  final PoolEntry entry = bag.borrow(1, SECONDS);
+                  if (entry != null) {
+                     borrowed.incrementAndGet();
+                     bag.requite(entry);
+                  }
+               }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }));
+         }
+
+         for (Thread thread : threads) {
+            thread.join();
+         }
+
+         assertTrue(virtual.get());
+         assertFalse(ThreadElf.isVirtual(Thread.currentThread()));
+         assertEquals(1_000, borrowed.get());
+         assertEquals(4, bag.getCount(STATE_NOT_IN_USE));
+         assertStateCounts(bag);
+      }
+   }
+
+   private static void assertStateCounts(final ConcurrentBag<PoolEntry> bag)
+   {
+      for (int state : new int[] { STATE_NOT_IN_USE, STATE_IN_USE, STATE_RESERVED }) {
+         assertEquals("count of state " + state, bag.values(state).size(), bag.getCount(state));
+      }
+
+      final int[] stateCounts = bag.getStateCounts();
+      assertEquals(bag.values(STATE_NOT_IN_USE).size(), stateCounts[STATE_NOT_IN_USE]);
+      assertEquals(bag.values(STATE_IN_USE).size(), stateCounts[STATE_IN_USE]);
+      assertEquals(bag.size(), stateCounts[4]);
+   }
 }
@@ -217,6 +217,102 @@ public class TestConnections
       }
    }
 
+   @Test
+   public void testMaxLifetimeMakeBeforeBreak() throws Exception
+   {
+      final StubDataSource stubDataSource = new StubDataSource();
+      stubDataSource.setConnectionAcquistionTime(300);
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(2);
+      config.setMakeBeforeBreak(true);
+      config.setConnectionTimeout(2500);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSource(stubDataSource);
+
+      System.setProperty("com.zaxxer.hikari.housekeeping.periodMs", "100");
+
+      setConfigUnitTest(true);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.housekeeping.periodMs");
+
+         getUnsealedConfig(ds).setMaxLifetime(700);
+         // retire the connection created during initialization, which has the default lifetime
+         ds.getHikariPoolMXBean().softEvictConnections();
+
+         HikariPool pool = getPool(ds);
+         while (pool.getIdleConnections() == 0) {
+            quietlySleep(10);
+         }
+
+         Connection unwrap;
+         try (Connection connection = ds.getConnection()) {
+            unwrap = connection.unwrap(Connection.class);
+         }
+
+         // across two retirements, the pool is never without an idle connection
+         final long start = System.currentTimeMillis();
+         while (System.currentTimeMillis() - start < 1800) {
+            assertTrue("Pool was without an idle connection during retirement", pool.getIdleConnections() > 0);
+            assertTrue(pool.getTotalConnections() <= 2);
+            quietlySleep(5);
+         }
+
+         try (Connection connection = ds.getConnection()) {
+            assertNotSame("Expected a different connection", unwrap, connection.unwrap(Connection.class));
+         }
+      }
+      finally {
+         setConfigUnitTest(false);
+      }
+   }
+
+   @Test
+   public void testMaxLifetimeMakeBeforeBreakAtMaximum() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setMakeBeforeBreak(true);
+      config.setConnectionTimeout(2500);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.housekeeping.periodMs", "100");
+
+      setConfigUnitTest(true);
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.housekeeping.periodMs");
+
+         getUnsealedConfig(ds).setMaxLifetime(700);
+         ds.getHikariPoolMXBean().softEvictConnections();
+
+         HikariPool pool = getPool(ds);
+         while (pool.getIdleConnections() == 0) {
+            quietlySleep(10);
+         }
+
+         // a connection in use past its lifetime is retired when it is returned, and is not replaced before
+         Connection unwrap;
+         try (Connection connection = ds.getConnection()) {
+            unwrap = connection.unwrap(Connection.class);
+            final long start = System.currentTimeMillis();
+            while (System.currentTimeMillis() - start < 1200) {
+               assertTrue("Pool grew past its maximum during retirement", pool.getTotalConnections() <= 1);
+               quietlySleep(5);
+            }
+         }
+
+         try (Connection connection = ds.getConnection()) {
+            assertNotSame("Expected a different connection", unwrap, connection.unwrap(Connection.class));
+         }
+      }
+      finally {
+         setConfigUnitTest(false);
+      }
+   }
+
    @Test
    public void testKeepalive() throws Exception{
       HikariConfig config = newHikariConfig();
@@ -248,6 +344,43 @@ public class TestConnections
       }
    }
 
+   @Test
+   public void testValidateAhead() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(0);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(2500);
+      config.setValidateAhead(true);
+      StubDataSource sds = new StubDataSource();
+      // the connection dies after 700ms without a validation
+      sds.setWaitTimeout(700);
+      config.setDataSource(sds);
+
+      System.setProperty("com.zaxxer.hikari.aliveBypassWindowMs", "200");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+
+         HikariPool pool = getPool(ds);
+         Connection unwrap;
+         try (Connection connection = pool.getConnection()) {
+            unwrap = connection.unwrap(Connection.class);
+         }
+
+         // idle for longer than the wait timeout, kept alive by validation ahead of the borrowers
+         quietlySleep(1500);
+         assertFalse("Connection should be open", unwrap.isClosed());
+
+         try (Connection connection = pool.getConnection()) {
+            assertSame("Expected the same connection", unwrap, connection.unwrap(Connection.class));
+         }
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+      }
+   }
+
    @Test
    public void testKeepalive2() throws Exception{
       HikariConfig config = newHikariConfig();
@@ -201,7 +201,7 @@ public final class TestElf
 
    public static class FauxWebClassLoader extends ClassLoader
    {
-      static final byte[] classBytes = new byte[16_000];
+      static final byte[] classBytes = new byte[64_000];
 
       @Override
       public Class<?> loadClass(final String name) throws ClassNotFoundException
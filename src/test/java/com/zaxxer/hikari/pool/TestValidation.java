@@ -208,6 +208,22 @@ public class TestValidation
       }
    }
 
+   @Test
+   public void validateInvalidBorrowOrder()
+   {
+      HikariConfig config = newHikariConfig();
+      config.setBorrowOrder("youngest_first");
+      assertEquals("YOUNGEST_FIRST", config.getBorrowOrder());
+
+      try {
+         config.setBorrowOrder("FIFO");
+         fail();
+      }
+      catch (IllegalArgumentException ise) {
+         assertTrue(ise.getMessage().contains("borrowOrder must be one of"));
+      }
+   }
+
    @Test
    public void validateInvalidLifetime()
    {
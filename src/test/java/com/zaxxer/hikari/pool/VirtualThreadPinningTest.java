@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.mocks.StubStatement;
+
+/**
+ * Runs virtual threads through the pool while the JVM traces pinned threads
+ * (-Djdk.tracePinnedThreads, set in the surefire argLine), and fails if any
+ * virtual thread parked while holding a monitor.  Statement close is slowed
+ * down so that the close paths park while "in the driver".
+ *
+ * @author Brett Wooldridge
+ */
+public class VirtualThreadPinningTest
+{
+   private static final int THREADS = 10_000;
+
+   @Test
+   public void testNoCarrierPinning() throws Exception
+   {
+      final Method startVirtualThread;
+      try {
+         startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+      }
+      catch (NoSuchMethodException e) {
+         assumeNoException("Virtual threads are not supported by this JVM", e);
+         return;
+      }
+      assumeTrue("-Djdk.tracePinnedThreads is required to detect pinning", System.getProperty("jdk.tracePinnedThreads") != null);
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(0);
+      config.setMaximumPoolSize(8);
+      config.setAllowPoolSuspension(true);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      // not started until the first getConnection(), so that lazy initialization also runs on a virtual thread
+      final HikariDataSource ds = new HikariDataSource();
+      config.copyStateTo(ds);
+
+      final AtomicInteger failures = new AtomicInteger();
+      final ByteArrayOutputStream trace = new ByteArrayOutputStream();
+      final PrintStream systemOut = System.out;
+      StubStatement.setSimulatedCloseTime(1);
+      System.setOut(new PrintStream(trace, true));
+      try {
+         final List<Thread> threads = new ArrayList<>();
+         for (int i = 0; i < THREADS; i++) {
+            threads.add((Thread) startVirtualThread.invoke(null, (Runnable) () -> {
+               try (Connection connection = ds.getConnection()) {
+                  connection.prepareStatement("SELECT 1").close();
+                  connection.prepareStatement("SELECT 1"); // left open, closed by Connection.close()
+               }
+               catch (SQLException e) {
+                  failures.incrementAndGet();
+               }
+            }));
+         }
+
+         for (Thread thread : threads) {
+            thread.join();
+         }
+
+         final Thread lifecycle = (Thread) startVirtualThread.invoke(null, (Runnable) () -> {
+            ds.getHikariPoolMXBean().suspendPool();
+            ds.getHikariPoolMXBean().resumePool();
+            ds.close();
+         });
+         lifecycle.join();
+      }
+      finally {
+         System.setOut(systemOut);
+         StubStatement.setSimulatedCloseTime(0);
+         ds.close();
+      }
+
+      assertEquals(0, failures.get());
+      assertFalse(trace.toString(), trace.toString().contains("<== monitors"));
+   }
+}